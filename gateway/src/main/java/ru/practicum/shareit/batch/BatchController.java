@@ -0,0 +1,44 @@
+package ru.practicum.shareit.batch;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Controller;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import ru.practicum.shareit.batch.dto.BatchRequestDto;
+import ru.practicum.shareit.batch.dto.BatchResponseDto;
+import ru.practicum.shareit.config.BatchProperties;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Controller
+@RequestMapping(path = "/batch")
+@RequiredArgsConstructor
+@Slf4j
+@Validated
+public class BatchController {
+    private final BatchDispatcher batchDispatcher;
+    private final BatchProperties properties;
+
+    @PostMapping
+    @ResponseBody
+    public CompletableFuture<List<BatchResponseDto>> execute(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                             @RequestBody List<@Valid BatchRequestDto> requests,
+                                                             HttpServletRequest request) {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("Пакет запросов пуст");
+        }
+        if (requests.size() > properties.getMaxRequests()) {
+            throw new IllegalArgumentException("В пакете не может быть больше " + properties.getMaxRequests() + " запросов");
+        }
+        log.info("Batch of {} requests, userId={}", requests.size(), userId);
+        return batchDispatcher.dispatch(request, userId, requests);
+    }
+}
@@ -0,0 +1,194 @@
+package ru.practicum.shareit.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.HandlerMethodArgumentResolverComposite;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.ServletRequestDataBinderFactory;
+import org.springframework.web.util.ServletRequestPathUtils;
+import ru.practicum.shareit.batch.dto.BatchRequestDto;
+import ru.practicum.shareit.batch.dto.BatchResponseDto;
+import ru.practicum.shareit.ratelimit.EndpointClass;
+import ru.practicum.shareit.ratelimit.TokenBucketLimiter;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// выполняет подзапросы пакета теми же методами контроллеров, что и обычные запросы,
+// поэтому к ним применяются те же привязка параметров и валидация
+@Slf4j
+public class BatchDispatcher {
+    private final RequestMappingHandlerMapping handlerMapping;
+    private final HandlerMethodArgumentResolverComposite argumentResolvers = new HandlerMethodArgumentResolverComposite();
+    private final WebDataBinderFactory binderFactory;
+    private final HandlerExceptionResolver exceptionResolver;
+    @Nullable
+    private final TokenBucketLimiter limiter;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor executor;
+
+    public BatchDispatcher(RequestMappingHandlerMapping handlerMapping, RequestMappingHandlerAdapter handlerAdapter,
+                           HandlerExceptionResolver exceptionResolver, @Nullable TokenBucketLimiter limiter,
+                           ObjectMapper objectMapper, ThreadPoolTaskExecutor executor) {
+        this.handlerMapping = handlerMapping;
+        this.argumentResolvers.addResolvers(handlerAdapter.getArgumentResolvers());
+        this.binderFactory = new ServletRequestDataBinderFactory(null, handlerAdapter.getWebBindingInitializer());
+        this.exceptionResolver = exceptionResolver;
+        this.limiter = limiter;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<List<BatchResponseDto>> dispatch(HttpServletRequest batchRequest, long userId,
+                                                              List<BatchRequestDto> requests) {
+        List<CompletableFuture<BatchResponseDto>> responses = requests.stream()
+                .map(request -> dispatch(batchRequest, userId, request))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> responses.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.toList()));
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private CompletableFuture<BatchResponseDto> dispatch(HttpServletRequest batchRequest, long userId,
+                                                         BatchRequestDto request) {
+        SubRequest subRequest;
+        try {
+            subRequest = new SubRequest(batchRequest, userId, request.getMethod(), request.getPath(),
+                    toBytes(request));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(toBatchResponse(error(HttpStatus.BAD_REQUEST, e.getMessage())));
+        }
+        CompletableFuture<ResponseEntity<Object>> response;
+        try {
+            response = CompletableFuture.supplyAsync(() -> invoke(subRequest), executor)
+                    .thenCompose(Function.identity());
+        } catch (TaskRejectedException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response
+                .handle((result, error) -> {
+                    if (error == null) {
+                        return result;
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error;
+                    return toErrorResponse(subRequest, cause);
+                })
+                .thenApply(this::toBatchResponse);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<ResponseEntity<Object>> invoke(SubRequest request) {
+        try {
+            ServletRequestPathUtils.parseAndCache(request);
+            HandlerExecutionChain chain = handlerMapping.getHandler(request);
+            if (chain == null || !(chain.getHandler() instanceof HandlerMethod)) {
+                return CompletableFuture.completedFuture(error(HttpStatus.NOT_FOUND,
+                        "Не найден обработчик " + request.getMethod() + " " + request.getRequestURI()));
+            }
+            HandlerMethod handlerMethod = (HandlerMethod) chain.getHandler();
+            // выгрузки пишут в ответ напрямую, а вложенный пакет не допускается
+            if (handlerMethod.getBeanType() == BatchController.class
+                    || !CompletableFuture.class.isAssignableFrom(handlerMethod.getMethod().getReturnType())) {
+                return CompletableFuture.completedFuture(error(HttpStatus.BAD_REQUEST,
+                        "Запрос " + request.getMethod() + " " + request.getRequestURI() + " нельзя выполнить в пакете"));
+            }
+            if (limiter != null) {
+                long userId = Long.parseLong(request.getHeader("X-Sharer-User-Id"));
+                Duration wait = limiter.tryAcquire(userId, EndpointClass.of(request));
+                if (!wait.isZero()) {
+                    return CompletableFuture.completedFuture(error(HttpStatus.TOO_MANY_REQUESTS, "Too many requests"));
+                }
+            }
+            ServletInvocableHandlerMethod invocable = new ServletInvocableHandlerMethod(
+                    handlerMethod.createWithResolvedBean());
+            invocable.setHandlerMethodArgumentResolvers(argumentResolvers);
+            invocable.setDataBinderFactory(binderFactory);
+            invocable.setParameterNameDiscoverer(new DefaultParameterNameDiscoverer());
+            return (CompletableFuture<ResponseEntity<Object>>) invocable.invokeForRequest(
+                    new ServletWebRequest(request), new ModelAndViewContainer());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    // ошибку разбирают те же резолверы, что и у DispatcherServlet, поэтому статус и тело
+    // совпадают с ответом на такой же одиночный запрос
+    private ResponseEntity<Object> toErrorResponse(SubRequest request, Throwable error) {
+        if (error instanceof TaskRejectedException) {
+            return error(HttpStatus.SERVICE_UNAVAILABLE, "Пул пакетных запросов переполнен");
+        }
+        if (error instanceof Exception) {
+            SubResponse response = new SubResponse();
+            Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+            if (exceptionResolver.resolveException(request, response, handler, (Exception) error) != null) {
+                ResponseEntity<Object> resolved = response.toResponseEntity();
+                if (((byte[]) resolved.getBody()).length == 0) {
+                    return error(resolved.getStatusCode(), error.getMessage());
+                }
+                return resolved;
+            }
+        }
+        log.error("Batch request {} {} failed", request.getMethod(), request.getRequestURI(), error);
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, error.getMessage());
+    }
+
+    private ResponseEntity<Object> error(HttpStatus status, String message) {
+        try {
+            return ResponseEntity.status(status)
+                    .body(objectMapper.writeValueAsBytes(Map.of("error", String.valueOf(message))));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private BatchResponseDto toBatchResponse(ResponseEntity<Object> response) {
+        Object body = response.getBody();
+        String json = body instanceof byte[] && ((byte[]) body).length > 0
+                ? new String((byte[]) body, StandardCharsets.UTF_8)
+                : null;
+        return new BatchResponseDto(response.getStatusCodeValue(), json);
+    }
+
+    private byte[] toBytes(BatchRequestDto request) {
+        if (request.getBody() == null || request.getBody().isNull()) {
+            return new byte[0];
+        }
+        try {
+            return objectMapper.writeValueAsBytes(request.getBody());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+}
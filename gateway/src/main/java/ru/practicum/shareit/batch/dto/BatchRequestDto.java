@@ -0,0 +1,17 @@
+package ru.practicum.shareit.batch.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Value;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Pattern;
+
+@Value
+public class BatchRequestDto {
+    @NotBlank(message = "Метод не может быть пустым")
+    String method;
+    @NotBlank(message = "Путь не может быть пустым")
+    @Pattern(regexp = "^/.*", message = "Путь должен начинаться с /")
+    String path;
+    JsonNode body;
+}
@@ -0,0 +1,12 @@
+package ru.practicum.shareit.batch.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.Value;
+
+@Value
+public class BatchResponseDto {
+    int status;
+    // тело ответа сервера уже в JSON, вставляется как есть
+    @JsonRawValue
+    String body;
+}
@@ -1,46 +1,82 @@
 package ru.practicum.shareit.booking;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.client.RestTemplate;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
+import ru.practicum.shareit.client.AsyncServerClient;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ClientGuard;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.SingleFlight;
 
+import javax.servlet.http.HttpServletResponse;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class BookingClient extends BaseClient {
-    public BookingClient(RestTemplate rest) {
-        super(rest);
+    private final ClientGuard exportGuard;
+
+    public BookingClient(RestTemplate rest, @Nullable AsyncServerClient async, ResponseCache cache,
+                         SingleFlight singleFlight, ClientGuard guard, ClientGuard exportGuard) {
+        super(rest, async, cache, singleFlight, guard);
+        this.exportGuard = exportGuard;
     }
 
-    public ResponseEntity<Object> getBookings(long userId, BookingState state, Integer from, Integer size) {
-        Map<String, Object> parameters = Map.of(
+    public CompletableFuture<ResponseEntity<Object>> getBookings(long userId, BookingState state, Integer from, Integer size,
+                                                                 @Nullable String after) {
+        Map<String, Object> parameters = new HashMap<>(Map.of(
                 "state", state.name(),
                 "from", from,
                 "size", size
-        );
-        return get("?state={state}&from={from}&size={size}", userId, parameters);
+        ));
+        return get("?state={state}&from={from}&size={size}" + afterParameter(parameters, after), userId, parameters);
+    }
+
+
+    public void exportBookings(long userId, HttpServletResponse response) {
+        stream("/export", userId, exportGuard, response);
     }
 
+    public void exportBookingsByOwner(long userId, HttpServletResponse response) {
+        stream("/owner/export", userId, exportGuard, response);
+    }
 
-    public ResponseEntity<Object> bookItem(long userId, BookItemRequestDto requestDto) {
+    public CompletableFuture<ResponseEntity<Object>> bookItem(long userId, BookItemRequestDto requestDto) {
         return post("", userId, requestDto);
     }
 
-    public ResponseEntity<Object> getBooking(long userId, Long bookingId) {
-        return get("/" + bookingId, userId);
+    public CompletableFuture<ResponseEntity<Object>> bookItems(long userId, byte[] requestDtos) {
+        return post("/batch", userId, requestDtos);
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> getBooking(long userId, Long bookingId,
+                                                                @Nullable String ifNoneMatch) {
+        return getCached("/" + bookingId, userId, ifNoneMatch);
     }
 
-    public ResponseEntity<Object> approveBooking(long userId, long bookingId, Boolean approved) {
+    public CompletableFuture<ResponseEntity<Object>> approveBooking(long userId, long bookingId, Boolean approved) {
         return patch(String.format("/%s?approved=%s", bookingId, approved), userId);
     }
 
-    public ResponseEntity<Object> getBookingsByOwner(long userId, BookingState state, Integer from, Integer size) {
-        Map<String, Object> parameters = Map.of(
+    public CompletableFuture<ResponseEntity<Object>> approveBookings(long userId, List<Long> bookingIds, Boolean approved) {
+        return patch("/batch?approved={approved}", userId, Map.of("approved", approved), bookingIds);
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> getBookingsByOwner(long userId, BookingState state, Integer from, Integer size,
+                                                                        @Nullable String after) {
+        Map<String, Object> parameters = new HashMap<>(Map.of(
                 "state", state.name(),
                 "from", from,
                 "size", size
+        ));
+        return get(
+                "/owner?state={state}&from={from}&size={size}" + afterParameter(parameters, after),
+                userId,
+                parameters
         );
-        return get("/owner?state={state}&from={from}&size={size}", userId, parameters);
     }
 }
@@ -3,6 +3,7 @@ package ru.practicum.shareit.booking;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -10,7 +11,10 @@ import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 
@@ -23,50 +27,84 @@ public class BookingController {
     private final BookingClient bookingClient;
 
     @GetMapping
-    public ResponseEntity<Object> getBookings(@RequestHeader("X-Sharer-User-Id") long userId,
-                                              @RequestParam(name = "state", defaultValue = "all") String stateParam,
-                                              @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                              @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+    public CompletableFuture<ResponseEntity<Object>> getBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                 @RequestParam(name = "state", defaultValue = "all") String stateParam,
+                                                                 @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
+                                                                 @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                                                 @RequestParam(required = false) String after) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
-        log.info("Get booking with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
-        return bookingClient.getBookings(userId, state, from, size);
+        log.info("Get booking with state {}, userId={}, from={}, size={}, after={}",
+                stateParam, userId, from, size, after
+        );
+        return bookingClient.getBookings(userId, state, from, size, after);
+    }
+
+    @GetMapping("export")
+    public void exportBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+                               HttpServletResponse response) {
+        log.info("Export bookings, userId={}", userId);
+        bookingClient.exportBookings(userId, response);
+    }
+
+    @GetMapping("owner/export")
+    public void exportBookingsByOwner(@RequestHeader("X-Sharer-User-Id") long userId,
+                                      HttpServletResponse response) {
+        log.info("Export bookings by owner, userId={}", userId);
+        bookingClient.exportBookingsByOwner(userId, response);
     }
 
     @PostMapping
-    public ResponseEntity<Object> bookItem(@RequestHeader("X-Sharer-User-Id") long userId,
-                                           @RequestBody @Valid BookItemRequestDto requestDto) {
+    public CompletableFuture<ResponseEntity<Object>> bookItem(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                              @RequestBody @Valid BookItemRequestDto requestDto) {
         log.info("Creating booking {}, userId={}", requestDto, userId);
         return bookingClient.bookItem(userId, requestDto);
     }
 
+    @PostMapping("batch")
+    public CompletableFuture<ResponseEntity<Object>> bookItems(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                               @RequestBody byte[] requestDtos) {
+        log.info("Creating bookings batch of {} bytes, userId={}", requestDtos.length, userId);
+        return bookingClient.bookItems(userId, requestDtos);
+    }
+
     @GetMapping("/{bookingId}")
-    public ResponseEntity<Object> getBooking(@RequestHeader("X-Sharer-User-Id") long userId,
-                                             @PathVariable Long bookingId) {
+    public CompletableFuture<ResponseEntity<Object>> getBooking(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                @PathVariable Long bookingId,
+                                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Get booking {}, userId={}", bookingId, userId);
-        return bookingClient.getBooking(userId, bookingId);
+        return bookingClient.getBooking(userId, bookingId, ifNoneMatch);
     }
 
     @PatchMapping("{bookingId}")
-    public ResponseEntity<Object> approveBooking(@RequestHeader("X-Sharer-User-Id") long userId,
-                                                 @PathVariable long bookingId,
-                                                 @RequestParam Boolean approved) {
+    public CompletableFuture<ResponseEntity<Object>> approveBooking(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                    @PathVariable long bookingId,
+                                                                    @RequestParam Boolean approved) {
         log.info("Approve booking bookingId={},approved={}, userId={}",
                 bookingId, approved, userId
         );
         return bookingClient.approveBooking(userId, bookingId, approved);
     }
 
+    @PatchMapping("batch")
+    public CompletableFuture<ResponseEntity<Object>> approveBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                     @RequestParam Boolean approved,
+                                                                     @RequestBody List<Long> bookingIds) {
+        log.info("Approve {} bookings, approved={}, userId={}", bookingIds.size(), approved, userId);
+        return bookingClient.approveBookings(userId, bookingIds, approved);
+    }
+
     @GetMapping("owner")
-    public ResponseEntity<Object> getBookingsByOwner(@RequestHeader("X-Sharer-User-Id") long userId,
-                                                     @RequestParam(name = "state", defaultValue = "all") String stateParam,
-                                                     @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                                     @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+    public CompletableFuture<ResponseEntity<Object>> getBookingsByOwner(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                        @RequestParam(name = "state", defaultValue = "all") String stateParam,
+                                                                        @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
+                                                                        @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                                                        @RequestParam(required = false) String after) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
-        log.info("Get bookings by owner userId={}, state={}, from={}, size={}",
-                userId, stateParam, from, size
+        log.info("Get bookings by owner userId={}, state={}, from={}, size={}, after={}",
+                userId, stateParam, from, size, after
         );
-        return bookingClient.getBookingsByOwner(userId, state, from, size);
+        return bookingClient.getBookingsByOwner(userId, state, from, size, after);
     }
 }
@@ -0,0 +1,91 @@
+package ru.practicum.shareit.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriBuilderFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+public class AsyncServerClient {
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final UriBuilderFactory uriBuilderFactory;
+    private final Duration readTimeout;
+    private final boolean compression;
+
+    public AsyncServerClient(HttpClient httpClient, ObjectMapper objectMapper, String baseUrl, Duration readTimeout,
+                             boolean compression) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.uriBuilderFactory = new DefaultUriBuilderFactory(baseUrl);
+        this.readTimeout = readTimeout;
+        this.compression = compression;
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> exchange(HttpMethod method, String path, HttpHeaders headers,
+                                                              @Nullable Map<String, Object> parameters,
+                                                              @Nullable Object body) {
+        URI uri = parameters != null
+                ? uriBuilderFactory.expand(path, parameters)
+                : uriBuilderFactory.expand(path);
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .method(method.name(), toBodyPublisher(body));
+        headers.forEach((name, values) -> values.forEach(value -> request.header(name, value)));
+        // java.net.http не распаковывает gzip сам, в отличие от Apache HttpClient
+        if (compression) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        }
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    HttpHeaders responseHeaders = new HttpHeaders();
+                    response.headers().map().forEach(responseHeaders::addAll);
+                    byte[] responseBody = response.body();
+                    if ("gzip".equalsIgnoreCase(responseHeaders.getFirst(HttpHeaders.CONTENT_ENCODING))) {
+                        responseBody = gunzip(responseBody);
+                        responseHeaders.remove(HttpHeaders.CONTENT_ENCODING);
+                    }
+                    return BaseClient.toGatewayResponse(response.statusCode(), responseHeaders, responseBody);
+                });
+    }
+
+    private static byte[] gunzip(byte[] body) {
+        if (body.length == 0) {
+            return body;
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpRequest.BodyPublisher toBodyPublisher(@Nullable Object body) {
+        if (body == null) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        if (body instanceof byte[]) {
+            return HttpRequest.BodyPublishers.ofByteArray((byte[]) body);
+        }
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
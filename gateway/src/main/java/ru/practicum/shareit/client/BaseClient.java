@@ -1,98 +1,275 @@
 package ru.practicum.shareit.client;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.servlet.http.HttpServletResponse;
+
 public class BaseClient {
+    // заголовки соединения шлюз-сервер не относятся к ответу клиенту
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            "connection",
+            "keep-alive",
+            "proxy-authenticate",
+            "proxy-authorization",
+            "te",
+            "trailer",
+            "transfer-encoding",
+            "upgrade",
+            "content-length"
+    );
+
     protected final RestTemplate rest;
+    @Nullable
+    private final AsyncServerClient async;
+    private final ResponseCache cache;
+    private final SingleFlight singleFlight;
+    private final ClientGuard guard;
 
-    public BaseClient(RestTemplate rest) {
+    public BaseClient(RestTemplate rest, @Nullable AsyncServerClient async, ResponseCache cache,
+                      SingleFlight singleFlight, ClientGuard guard) {
         this.rest = rest;
+        this.async = async;
+        this.cache = cache;
+        this.singleFlight = singleFlight;
+        this.guard = guard;
     }
 
-    protected ResponseEntity<Object> get(String path) {
+    protected CompletableFuture<ResponseEntity<Object>> get(String path) {
         return get(path, null, null);
     }
 
-    protected ResponseEntity<Object> get(String path, long userId) {
+    protected CompletableFuture<ResponseEntity<Object>> get(String path, long userId) {
         return get(path, userId, null);
     }
 
-    protected ResponseEntity<Object> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
+    protected CompletableFuture<ResponseEntity<Object>> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
         return makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, T body) {
+    protected CompletableFuture<ResponseEntity<Object>> getCached(String path, @Nullable Long userId,
+                                                                  @Nullable String ifNoneMatch) {
+        String client = getClass().getSimpleName();
+        SingleFlight.Key flightKey = new SingleFlight.Key(client, resourceOf(path), path, null, userId);
+        CompletableFuture<ResponseEntity<Object>> response = singleFlight.execute(flightKey, () -> {
+            ResponseCache.Key key = new ResponseCache.Key(client, resourceOf(path), path, userId);
+            ResponseCache.Entry cached = cache.get(key);
+            HttpHeaders headers = defaultHeaders(userId);
+            if (cached != null) {
+                headers.setIfNoneMatch(cached.getEtag());
+            }
+            long started = System.nanoTime();
+            return exchange(HttpMethod.GET, path, headers, null, null)
+                    .thenApply(result -> cache.handle(key, cached, result, System.nanoTime() - started));
+        });
+        return response.thenApply(result -> notModifiedIfMatches(result, ifNoneMatch));
+    }
+
+    protected <T> CompletableFuture<ResponseEntity<Object>> post(String path, T body) {
         return post(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, long userId, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> post(String path, long userId, T body) {
         return post(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> post(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> put(String path, long userId, T body) {
         return put(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> put(String path, long userId, @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.PUT, path, userId, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> patch(String path, T body) {
         return patch(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> patch(String path, long userId) {
         return patch(path, userId, null, null);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> patch(String path, long userId, T body) {
         return patch(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> patch(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.PATCH, path, userId, parameters, body);
     }
 
-    protected ResponseEntity<Object> delete(String path) {
+    protected CompletableFuture<ResponseEntity<Object>> delete(String path) {
         return delete(path, null, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, long userId) {
+    protected CompletableFuture<ResponseEntity<Object>> delete(String path, long userId) {
         return delete(path, userId, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
+    protected CompletableFuture<ResponseEntity<Object>> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
-    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
+    // у выгрузок свой guard: они держат соединение долго и не должны занимать места обычных запросов
+    protected void stream(String path, long userId, ClientGuard streamGuard, HttpServletResponse response) {
+        try {
+            streamGuard.stream(firstByte -> rest.execute(
+                    path,
+                    HttpMethod.GET,
+                    request -> {
+                        request.getHeaders().putAll(defaultHeaders(userId));
+                        request.getHeaders().setAccept(List.of(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON));
+                    },
+                    shareitServerResponse -> {
+                        firstByte.run();
+                        response.setStatus(shareitServerResponse.getRawStatusCode());
+                        setContentType(response, shareitServerResponse.getHeaders());
+                        StreamUtils.copy(shareitServerResponse.getBody(), response.getOutputStream());
+                        return null;
+                    }
+            ));
+        } catch (HttpStatusCodeException e) {
+            writeBody(response, e.getRawStatusCode(), e.getResponseHeaders(), e.getResponseBodyAsByteArray());
+        } catch (RuntimeException e) {
+            if (!ClientGuard.isRejection(e)) {
+                throw e;
+            }
+            ResponseEntity<Object> unavailable = ClientGuard.unavailable();
+            writeBody(response, unavailable.getStatusCodeValue(), unavailable.getHeaders(),
+                    (byte[]) unavailable.getBody());
+        }
+    }
+
+    protected static String afterParameter(Map<String, Object> parameters, @Nullable String after) {
+        if (after == null) {
+            return "";
+        }
+        parameters.put("after", after);
+        return "&after={after}";
+    }
+
+    private <T> CompletableFuture<ResponseEntity<Object>> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
+        String client = getClass().getSimpleName();
+        if (method == HttpMethod.GET) {
+            return singleFlight.execute(
+                    new SingleFlight.Key(client, resourceOf(path), path, parameters, userId),
+                    () -> exchange(method, path, defaultHeaders(userId), parameters, body)
+            );
+        }
+        CompletableFuture<ResponseEntity<Object>> response = exchange(method, path, defaultHeaders(userId), parameters, body);
+        // созданием закэшированные ресурсы не меняются, но окно SingleFlight сбрасывается и для него
+        boolean creation = path.isEmpty() || path.startsWith("?");
+        String resource = resourceOf(path);
+        return response.whenComplete((result, error) -> {
+            if (!creation) {
+                cache.evictResource(client, resource);
+            }
+            singleFlight.evictResource(client, resource);
+        });
+    }
 
-        ResponseEntity<Object> shareitServerResponse;
+    private <T> CompletableFuture<ResponseEntity<Object>> exchange(HttpMethod method, String path, HttpHeaders headers, @Nullable Map<String, Object> parameters, @Nullable T body) {
+        return guard.call(() -> send(method, path, headers, parameters, body));
+    }
+
+    private <T> CompletableFuture<ResponseEntity<Object>> send(HttpMethod method, String path, HttpHeaders headers, @Nullable Map<String, Object> parameters, @Nullable T body) {
+        if (async != null) {
+            return async.exchange(method, path, headers, parameters, body);
+        }
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, headers);
+
+        ResponseEntity<byte[]> shareitServerResponse;
         try {
             if (parameters != null) {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class, parameters);
+                shareitServerResponse = rest.exchange(path, method, requestEntity, byte[].class, parameters);
             } else {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class);
+                shareitServerResponse = rest.exchange(path, method, requestEntity, byte[].class);
             }
         } catch (HttpStatusCodeException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
+            HttpHeaders responseHeaders = e.getResponseHeaders();
+            return CompletableFuture.completedFuture(toGatewayResponse(
+                    e.getRawStatusCode(),
+                    responseHeaders == null ? new HttpHeaders() : responseHeaders,
+                    e.getResponseBodyAsByteArray()
+            ));
+        }
+        return CompletableFuture.completedFuture(toGatewayResponse(
+                shareitServerResponse.getStatusCodeValue(),
+                shareitServerResponse.getHeaders(),
+                shareitServerResponse.getBody()
+        ));
+    }
+
+    // версия у клиента совпадает с актуальной: 304 отдаёт шлюз, тело клиенту не передаётся
+    private static ResponseEntity<Object> notModifiedIfMatches(ResponseEntity<Object> response,
+                                                               @Nullable String ifNoneMatch) {
+        String etag = response.getHeaders().getETag();
+        if (ifNoneMatch == null || etag == null || response.getStatusCode() != HttpStatus.OK) {
+            return response;
+        }
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        String opaqueTag = opaqueTag(etag);
+        for (String candidate : requestHeaders.getIfNoneMatch()) {
+            if ("*".equals(candidate) || opaqueTag(candidate).equals(opaqueTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .build();
+            }
+        }
+        return response;
+    }
+
+    // If-None-Match сравнивается слабо: W/"1-2" совпадает с "1-2"
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    // "/5/comment" -> "/5"; null, если путь не указывает на отдельный ресурс
+    @Nullable
+    private static String resourceOf(String path) {
+        String segment = path.replaceFirst("^/", "").split("[/?]", 2)[0];
+        return segment.matches("\\d+") ? "/" + segment : null;
+    }
+
+    private static void writeBody(HttpServletResponse response, int status, @Nullable HttpHeaders headers,
+                                  @Nullable byte[] body) {
+        response.setStatus(status);
+        setContentType(response, headers);
+        if (body == null) {
+            return;
+        }
+        try {
+            response.getOutputStream().write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void setContentType(HttpServletResponse response, @Nullable HttpHeaders headers) {
+        MediaType contentType = headers == null ? null : headers.getContentType();
+        if (contentType != null) {
+            response.setContentType(contentType.toString());
         }
-        return prepareGatewayResponse(shareitServerResponse);
     }
 
     private HttpHeaders defaultHeaders(Long userId) {
@@ -105,15 +282,26 @@ public class BaseClient {
         return headers;
     }
 
-    private static ResponseEntity<Object> prepareGatewayResponse(ResponseEntity<Object> response) {
-        if (response.getStatusCode().is2xxSuccessful()) {
-            return response;
+    static ResponseEntity<Object> toGatewayResponse(int status, HttpHeaders serverHeaders, @Nullable byte[] body) {
+        if (status >= 400) {
+            ResponseEntity.BodyBuilder errorBuilder = ResponseEntity.status(status);
+            MediaType contentType = serverHeaders.getContentType();
+            if (contentType != null) {
+                errorBuilder.contentType(contentType);
+            }
+            return errorBuilder.body(body);
         }
+        HttpHeaders headers = new HttpHeaders();
+        serverHeaders.forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                headers.addAll(name, values);
+            }
+        });
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(status)
+                .headers(headers);
 
-        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode());
-
-        if (response.hasBody()) {
-            return responseBuilder.body(response.getBody());
+        if (body != null && body.length > 0) {
+            return responseBuilder.body(body);
         }
 
         return responseBuilder.build();
@@ -0,0 +1,116 @@
+package ru.practicum.shareit.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class ClientGuard {
+    private static final byte[] UNAVAILABLE_BODY = "{\"error\":\"Server is temporarily unavailable\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    public ClientGuard(CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+    }
+
+    // открытый предохранитель отвечает сразу, не занимая место в bulkhead
+    public CompletableFuture<ResponseEntity<Object>> call(Supplier<CompletableFuture<ResponseEntity<Object>>> call) {
+        Supplier<CompletionStage<ResponseEntity<Object>>> guarded = CircuitBreaker.decorateCompletionStage(
+                circuitBreaker,
+                Bulkhead.decorateCompletionStage(bulkhead, () -> call.get().thenApply(ClientGuard::failOnServerError))
+        );
+        return guarded.get()
+                .toCompletableFuture()
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return response;
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error;
+                    if (cause instanceof ServerErrorResponse) {
+                        return ((ServerErrorResponse) cause).getResponse();
+                    }
+                    if (isRejection(cause)) {
+                        return unavailable();
+                    }
+                    throw cause instanceof RuntimeException ? (RuntimeException) cause : new CompletionException(cause);
+                });
+    }
+
+    // выгрузка занимает место в bulkhead до конца передачи, а предохранитель учитывает только
+    // время до первого байта: вызов получает отметку, которую дёргает при начале ответа
+    public void stream(Consumer<Runnable> call) {
+        circuitBreaker.acquirePermission();
+        try {
+            bulkhead.acquirePermission();
+        } catch (BulkheadFullException e) {
+            circuitBreaker.releasePermission();
+            throw e;
+        }
+        long started = circuitBreaker.getCurrentTimestamp();
+        AtomicBoolean recorded = new AtomicBoolean();
+        Runnable firstByte = () -> {
+            if (recorded.compareAndSet(false, true)) {
+                circuitBreaker.onSuccess(circuitBreaker.getCurrentTimestamp() - started,
+                        circuitBreaker.getTimestampUnit());
+            }
+        };
+        try {
+            call.accept(firstByte);
+            firstByte.run();
+        } catch (RuntimeException e) {
+            if (recorded.compareAndSet(false, true)) {
+                circuitBreaker.onError(circuitBreaker.getCurrentTimestamp() - started,
+                        circuitBreaker.getTimestampUnit(), e);
+            }
+            throw e;
+        } finally {
+            bulkhead.onComplete();
+        }
+    }
+
+    public static boolean isRejection(Throwable error) {
+        return error instanceof CallNotPermittedException || error instanceof BulkheadFullException;
+    }
+
+    public static ResponseEntity<Object> unavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(UNAVAILABLE_BODY);
+    }
+
+    // 5xx от сервера предохранитель должен считать ошибкой, 4xx - нет
+    private static ResponseEntity<Object> failOnServerError(ResponseEntity<Object> response) {
+        if (response.getStatusCode().is5xxServerError()) {
+            throw new ServerErrorResponse(response);
+        }
+        return response;
+    }
+
+    @Getter
+    private static class ServerErrorResponse extends RuntimeException {
+        private final transient ResponseEntity<Object> response;
+
+        ServerErrorResponse(ResponseEntity<Object> response) {
+            super("Server responded " + response.getStatusCodeValue(), null, false, false);
+            this.response = response;
+        }
+    }
+}
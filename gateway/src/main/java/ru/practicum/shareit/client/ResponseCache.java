@@ -0,0 +1,155 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class ResponseCache {
+    private static final String METRIC_PREFIX = "gateway.response.cache";
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer savedLatency;
+
+    public ResponseCache(long maxBytes, MeterRegistry registry) {
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder(METRIC_PREFIX + ".requests")
+                .tag("result", "hit")
+                .register(registry);
+        this.misses = Counter.builder(METRIC_PREFIX + ".requests")
+                .tag("result", "miss")
+                .register(registry);
+        this.savedLatency = Timer.builder(METRIC_PREFIX + ".saved.latency")
+                .description("Upstream time saved by answering 304 instead of a full response")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".size", this, ResponseCache::getSizeBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".entries", this, ResponseCache::getEntryCount)
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".hit.ratio", this, ResponseCache::getHitRatio)
+                .register(registry);
+    }
+
+    @Nullable
+    public synchronized Entry get(Key key) {
+        return entries.get(key);
+    }
+
+    // ответ на условный GET: 304 отдаётся из кэша, 200 с ETag запоминается
+    public ResponseEntity<Object> handle(Key key, @Nullable Entry cached, ResponseEntity<Object> response,
+                                         long elapsedNanos) {
+        if (cached != null && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            hits.increment();
+            long saved = cached.getFetchNanos() - elapsedNanos;
+            if (saved > 0) {
+                savedLatency.record(saved, TimeUnit.NANOSECONDS);
+            }
+            return cached.toResponse();
+        }
+        misses.increment();
+        String etag = response.getHeaders().getETag();
+        if (response.getStatusCode() == HttpStatus.OK && etag != null && response.getBody() instanceof byte[]) {
+            put(key, new Entry(
+                    etag,
+                    response.getHeaders().getContentType(),
+                    (byte[]) response.getBody(),
+                    elapsedNanos
+            ));
+        } else {
+            evict(key);
+        }
+        return response;
+    }
+
+    public synchronized void evictResource(String client, @Nullable String resource) {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            Key key = entry.getKey();
+            if (key.getClient().equals(client) && (resource == null || resource.equals(key.getResource()))) {
+                sizeBytes -= entry.getValue().getBody().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        if (entry.getBody().length > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            sizeBytes -= previous.getBody().length;
+        }
+        sizeBytes += entry.getBody().length;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (sizeBytes > maxBytes && eldest.hasNext()) {
+            sizeBytes -= eldest.next().getBody().length;
+            eldest.remove();
+        }
+    }
+
+    private synchronized void evict(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            sizeBytes -= removed.getBody().length;
+        }
+    }
+
+    private synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    private synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    private double getHitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    @Value
+    public static class Key {
+        String client;
+        String resource;
+        String path;
+        Long userId;
+    }
+
+    @Value
+    public static class Entry {
+        String etag;
+        MediaType contentType;
+        byte[] body;
+        long fetchNanos;
+
+        public ResponseEntity<Object> toResponse() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(etag);
+            if (contentType != null) {
+                headers.setContentType(contentType);
+            }
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(body);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public class SingleFlight {
+    private static final String METRIC = "gateway.single.flight.requests";
+
+    private final ConcurrentHashMap<Key, CompletableFuture<ResponseEntity<Object>>> inFlight =
+            new ConcurrentHashMap<>();
+    private final Duration window;
+    private final Executor delayedRemoval;
+    private final Counter upstream;
+    private final Counter coalesced;
+
+    public SingleFlight(Duration window, MeterRegistry registry) {
+        this.window = window;
+        this.delayedRemoval = CompletableFuture.delayedExecutor(window.toMillis(), TimeUnit.MILLISECONDS);
+        this.upstream = Counter.builder(METRIC)
+                .tag("result", "upstream")
+                .register(registry);
+        this.coalesced = Counter.builder(METRIC)
+                .tag("result", "coalesced")
+                .description("Requests answered by another request's upstream call")
+                .register(registry);
+    }
+
+    // одинаковые запросы, пришедшие пока первый в полёте (или в пределах окна после него), получают его ответ;
+    // изменение ресурса через evictResource окно закрывает
+    public CompletableFuture<ResponseEntity<Object>> execute(Key key,
+                                                             Supplier<CompletableFuture<ResponseEntity<Object>>> call) {
+        CompletableFuture<ResponseEntity<Object>> created = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<Object>> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        upstream.increment();
+        CompletableFuture<ResponseEntity<Object>> response;
+        try {
+            response = call.get();
+        } catch (RuntimeException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+            return created;
+        }
+        response.whenComplete((result, error) -> {
+            if (error == null && result.getStatusCode().is2xxSuccessful() && !window.isZero()) {
+                delayedRemoval.execute(() -> inFlight.remove(key, created));
+            } else {
+                inFlight.remove(key, created);
+            }
+            if (error != null) {
+                created.completeExceptionally(error);
+            } else {
+                created.complete(result);
+            }
+        });
+        return created;
+    }
+
+    // после изменения ответы из окна устарели: повторный GET должен уйти на сервер, а не получить
+    // ответ, начатый до записи. resource == null - изменение затрагивает весь клиент
+    public void evictResource(String client, @Nullable String resource) {
+        inFlight.keySet().removeIf(key -> key.getClient().equals(client)
+                && (resource == null || key.getResource() == null || resource.equals(key.getResource())));
+    }
+
+    @Value
+    public static class Key {
+        String client;
+        @Nullable
+        String resource;
+        String path;
+        @Nullable
+        Map<String, Object> parameters;
+        @Nullable
+        Long userId;
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.shareit.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import ru.practicum.shareit.batch.BatchDispatcher;
+import ru.practicum.shareit.ratelimit.TokenBucketLimiter;
+
+@Configuration
+@EnableConfigurationProperties(BatchProperties.class)
+public class BatchConfig {
+    @Bean(destroyMethod = "shutdown")
+    public BatchDispatcher batchDispatcher(@Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping,
+                                           RequestMappingHandlerAdapter handlerAdapter,
+                                           @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver,
+                                           ObjectProvider<TokenBucketLimiter> limiter,
+                                           ObjectMapper objectMapper,
+                                           BatchProperties properties) {
+        // в блокирующем режиме вызов клиента занимает поток, поэтому подзапросы выполняются в своём пуле;
+        // пул не бин, чтобы не подменять applicationTaskExecutor
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getThreads());
+        executor.setMaxPoolSize(properties.getThreads());
+        executor.setQueueCapacity(properties.getThreads() * properties.getMaxRequests());
+        executor.setThreadNamePrefix("batch-");
+        executor.initialize();
+        return new BatchDispatcher(handlerMapping, handlerAdapter, exceptionResolver, limiter.getIfAvailable(), objectMapper, executor);
+    }
+}
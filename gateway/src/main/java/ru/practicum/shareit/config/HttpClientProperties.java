@@ -0,0 +1,31 @@
+package ru.practicum.shareit.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "shareit-server.http-client")
+public class HttpClientProperties {
+    private Mode mode = Mode.BLOCKING;
+    private int maxTotal = 200;
+    private int maxPerRoute = 200;
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(30);
+    private Duration poolAcquireTimeout = Duration.ofSeconds(1);
+    private Duration idleTimeout = Duration.ofSeconds(30);
+    private Duration keepAlive = Duration.ofSeconds(60);
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    private DataSize responseCacheSize = DataSize.ofMegabytes(16);
+    private Duration coalescingWindow = Duration.ZERO;
+    private boolean compression = true;
+
+    public enum Mode {
+        BLOCKING,
+        ASYNC
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.shareit.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.shareit.ratelimit.RateLimitFilter;
+import ru.practicum.shareit.ratelimit.TokenBucketLimiter;
+
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+@ConditionalOnProperty(prefix = "shareit-gateway.rate-limit", name = "enabled", matchIfMissing = true)
+public class RateLimitConfig {
+    @Bean(destroyMethod = "close")
+    public TokenBucketLimiter tokenBucketLimiter(RateLimitProperties properties, MeterRegistry registry) {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(properties);
+        Gauge.builder("gateway.rate.limit.buckets", limiter, TokenBucketLimiter::size)
+                .description("Users with a rate limit bucket in memory")
+                .register(registry);
+        return limiter;
+    }
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(TokenBucketLimiter limiter) {
+        return new FilterRegistrationBean<>(new RateLimitFilter(limiter));
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.shareit.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "shareit-gateway.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    private Limit read = new Limit(50, 100);
+    private Limit write = new Limit(10, 20);
+    private Limit search = new Limit(5, 10);
+    private Duration evictionInterval = Duration.ofMinutes(1);
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        private double permitsPerSecond;
+        private int burst;
+    }
+}
@@ -1,60 +1,148 @@
 package ru.practicum.shareit.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.booking.BookingClient;
+import ru.practicum.shareit.client.AsyncServerClient;
+import ru.practicum.shareit.client.ClientGuard;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.SingleFlight;
 import ru.practicum.shareit.item.ItemClient;
 import ru.practicum.shareit.request.ItemRequestClient;
 import ru.practicum.shareit.user.UserClient;
 
+import java.net.http.HttpClient;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Configuration
+@RequiredArgsConstructor
 public class WebClientConfig {
     private static final String BOOKINGS_API_PREFIX = "/bookings";
     private static final String ITEMS_API_PREFIX = "/items";
     private static final String REQUESTS_API_PREFIX = "/requests";
     private static final String USERS_API_PREFIX = "/users";
+    private static final String ACTIVE_REQUESTS_METRIC = "gateway.http.client.requests.active";
+
+    private final CloseableHttpClient httpClient;
+    private final ObjectProvider<HttpClient> asyncHttpClient;
+    private final HttpClientProperties properties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
 
     @Value("${shareit-server.url}")
     private String serverUrl;
 
     @Bean
-    public BookingClient bookingClient(RestTemplateBuilder builder) {
-        RestTemplate restTemplate = builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + BOOKINGS_API_PREFIX))
-                .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                .build();
-        return new BookingClient(restTemplate);
+    public ResponseCache responseCache() {
+        return new ResponseCache(properties.getResponseCacheSize().toBytes(), meterRegistry);
     }
 
     @Bean
-    public ItemClient itemClient(RestTemplateBuilder builder) {
-        RestTemplate restTemplate = builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + ITEMS_API_PREFIX))
-                .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                .build();
-        return new ItemClient(restTemplate);
+    public SingleFlight singleFlight() {
+        return new SingleFlight(properties.getCoalescingWindow(), meterRegistry);
     }
 
     @Bean
-    public ItemRequestClient itemRequestClient(RestTemplateBuilder builder) {
-        RestTemplate restTemplate = builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + REQUESTS_API_PREFIX))
-                .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                .build();
-        return new ItemRequestClient(restTemplate);
+    public BookingClient bookingClient(RestTemplateBuilder builder, ResponseCache responseCache,
+                                       SingleFlight singleFlight) {
+        return new BookingClient(
+                restTemplate(builder, BOOKINGS_API_PREFIX, "bookings"),
+                asyncClient(BOOKINGS_API_PREFIX),
+                responseCache,
+                singleFlight,
+                guard("bookings"),
+                guard("bookings-export")
+        );
     }
 
     @Bean
-    public UserClient userClient(RestTemplateBuilder builder) {
-        RestTemplate restTemplate = builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + USERS_API_PREFIX))
-                .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+    public ItemClient itemClient(RestTemplateBuilder builder, ResponseCache responseCache,
+                                 SingleFlight singleFlight) {
+        return new ItemClient(
+                restTemplate(builder, ITEMS_API_PREFIX, "items"),
+                asyncClient(ITEMS_API_PREFIX),
+                responseCache,
+                singleFlight,
+                guard("items")
+        );
+    }
+
+    @Bean
+    public ItemRequestClient itemRequestClient(RestTemplateBuilder builder, ResponseCache responseCache,
+                                               SingleFlight singleFlight) {
+        return new ItemRequestClient(
+                restTemplate(builder, REQUESTS_API_PREFIX, "requests"),
+                asyncClient(REQUESTS_API_PREFIX),
+                responseCache,
+                singleFlight,
+                guard("requests")
+        );
+    }
+
+    @Bean
+    public UserClient userClient(RestTemplateBuilder builder, ResponseCache responseCache,
+                                 SingleFlight singleFlight) {
+        return new UserClient(
+                restTemplate(builder, USERS_API_PREFIX, "users"),
+                asyncClient(USERS_API_PREFIX),
+                responseCache,
+                singleFlight,
+                guard("users")
+        );
+    }
+
+    // имена клиентов совпадают с instances в настройках resilience4j
+    private ClientGuard guard(String client) {
+        return new ClientGuard(
+                circuitBreakerRegistry.circuitBreaker(client),
+                bulkheadRegistry.bulkhead(client)
+        );
+    }
+
+    @Nullable
+    private AsyncServerClient asyncClient(String prefix) {
+        HttpClient client = asyncHttpClient.getIfAvailable();
+        if (client == null) {
+            return null;
+        }
+        return new AsyncServerClient(client, objectMapper, serverUrl + prefix, properties.getReadTimeout(),
+                properties.isCompression());
+    }
+
+    private RestTemplate restTemplate(RestTemplateBuilder builder, String prefix, String client) {
+        // пул соединений общий, поэтому по клиентам считаем запросы, удерживающие соединение
+        AtomicInteger active = new AtomicInteger();
+        Gauge.builder(ACTIVE_REQUESTS_METRIC, active, AtomicInteger::get)
+                .tag("client", client)
+                .description("Requests to shareit-server in flight")
+                .register(meterRegistry);
+        return builder
+                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + prefix))
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+                .additionalInterceptors((request, body, execution) -> {
+                    active.incrementAndGet();
+                    try {
+                        return execution.execute(request, body);
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                })
                 .build();
-        return new UserClient(restTemplate);
     }
 }
@@ -0,0 +1,25 @@
+package ru.practicum.shareit.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class WebMvcConfig {
+    // WebMvcConfigurer добавляет свои обработчики после стандартных, а CompletableFuture
+    // забирает первый подходящий, поэтому обработчик ставится в начало списка адаптера
+    @Bean
+    public SmartInitializingSingleton completedFutureReturnValueHandler(RequestMappingHandlerAdapter handlerAdapter) {
+        return () -> {
+            List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>();
+            handlers.add(new CompletedFutureReturnValueHandler(handlerAdapter.getReturnValueHandlers()));
+            handlers.addAll(handlerAdapter.getReturnValueHandlers());
+            handlerAdapter.setReturnValueHandlers(handlers);
+        };
+    }
+}
@@ -1,39 +1,57 @@
 package ru.practicum.shareit.item;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.client.RestTemplate;
+import ru.practicum.shareit.client.AsyncServerClient;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ClientGuard;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.SingleFlight;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class ItemClient extends BaseClient {
-    public ItemClient(RestTemplate rest) {
-        super(rest);
+    public ItemClient(RestTemplate rest, @Nullable AsyncServerClient async, ResponseCache cache,
+                      SingleFlight singleFlight, ClientGuard guard) {
+        super(rest, async, cache, singleFlight, guard);
     }
 
-    public ResponseEntity<Object> getItems(long userId, Integer from, Integer size) {
-        Map<String, Object> parameters = Map.of(
+    public CompletableFuture<ResponseEntity<Object>> getItems(long userId, Integer from, Integer size, @Nullable String after) {
+        Map<String, Object> parameters = new HashMap<>(Map.of(
                 "from", from,
                 "size", size
-        );
-        return get("?from={from}&size={size}", userId, parameters);
+        ));
+        return get("?from={from}&size={size}" + afterParameter(parameters, after), userId, parameters);
     }
 
-    public ResponseEntity<Object> getItem(long userId, Long itemId) {
-        return get("/" + itemId, userId);
+    public CompletableFuture<ResponseEntity<Object>> getItem(long userId, Long itemId, @Nullable String ifNoneMatch) {
+        return getCached("/" + itemId, userId, ifNoneMatch);
     }
 
-    public ResponseEntity<Object> saveNewItem(long userId, ItemDto itemDto) {
+    public CompletableFuture<ResponseEntity<Object>> saveNewItem(long userId, ItemDto itemDto) {
         return post("", userId, itemDto);
     }
 
-    public ResponseEntity<Object> updateItem(long userId, Long itemId, ItemDto itemDto) {
+    public CompletableFuture<ResponseEntity<Object>> saveNewItems(long userId, byte[] itemDtos) {
+        return post("/batch", userId, itemDtos);
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> updateAvailability(long userId, List<Long> itemIds, Boolean available) {
+        return patch("/availability?available={available}", userId, Map.of("available", available), itemIds);
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> updateItem(long userId, Long itemId, byte[] itemDto) {
         return patch("/" + itemId, userId, itemDto);
     }
 
-    public ResponseEntity<Object> searchItems(long userId, String text, Integer from, Integer size) {
+    public CompletableFuture<ResponseEntity<Object>> searchItems(long userId, String text, Integer from, Integer size) {
         Map<String, Object> parameters = Map.of(
                 "text", text,
                 "from", from,
@@ -42,7 +60,27 @@ public class ItemClient extends BaseClient {
         return get("/search?text={text}&from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> commentOnItem(long userId, Long itemId, CommentDto commentDto) {
+    public CompletableFuture<ResponseEntity<Object>> searchAvailableItems(long userId, String text, LocalDateTime start,
+                                                                          LocalDateTime end, Integer from, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "text", text,
+                "start", start,
+                "end", end,
+                "from", from,
+                "size", size
+        );
+        return get("/search?text={text}&start={start}&end={end}&from={from}&size={size}", userId, parameters);
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> getAvailability(long userId, Long itemId, LocalDateTime from, LocalDateTime to) {
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "to", to
+        );
+        return get("/" + itemId + "/availability?from={from}&to={to}", userId, parameters);
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> commentOnItem(long userId, Long itemId, CommentDto commentDto) {
         return post("/" + itemId + "/comment", userId, commentDto);
     }
 }
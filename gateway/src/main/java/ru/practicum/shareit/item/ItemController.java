@@ -2,6 +2,8 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -10,8 +12,14 @@ import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Future;
+import javax.validation.constraints.FutureOrPresent;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 @RequestMapping(path = "/items")
@@ -22,50 +30,96 @@ public class ItemController {
     private final ItemClient itemClient;
 
     @GetMapping
-    public ResponseEntity<Object> getItems(@RequestHeader("X-Sharer-User-Id") long userId,
-                                           @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-                                           @RequestParam(defaultValue = "10") @Positive Integer size) {
-        log.info("Get items userId={}, from={}, size={}", userId, from, size);
-        return itemClient.getItems(userId, from, size);
+    public CompletableFuture<ResponseEntity<Object>> getItems(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                              @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
+                                                              @RequestParam(defaultValue = "10") @Positive Integer size,
+                                                              @RequestParam(required = false) String after) {
+        log.info("Get items userId={}, from={}, size={}, after={}", userId, from, size, after);
+        return itemClient.getItems(userId, from, size, after);
     }
 
     @GetMapping("{itemId}")
-    public ResponseEntity<Object> getItem(@RequestHeader("X-Sharer-User-Id") long userId,
-                                          @PathVariable Long itemId) {
+    public CompletableFuture<ResponseEntity<Object>> getItem(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                             @PathVariable Long itemId,
+                                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Get item itemId={}, userId={}", itemId, userId);
-        return itemClient.getItem(userId, itemId);
+        return itemClient.getItem(userId, itemId, ifNoneMatch);
     }
 
     @PostMapping
-    public ResponseEntity<Object> saveNewItem(@RequestHeader("X-Sharer-User-Id") long userId,
-                                              @Valid @RequestBody ItemDto itemDto) {
+    public CompletableFuture<ResponseEntity<Object>> saveNewItem(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                 @Valid @RequestBody ItemDto itemDto) {
         log.info("Creating item {}, userId={}", itemDto, userId);
         return itemClient.saveNewItem(userId, itemDto);
     }
 
+    @PostMapping("batch")
+    public CompletableFuture<ResponseEntity<Object>> saveNewItems(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                  @RequestBody byte[] itemDtos) {
+        log.info("Creating items batch of {} bytes, userId={}", itemDtos.length, userId);
+        return itemClient.saveNewItems(userId, itemDtos);
+    }
+
+    @PatchMapping("availability")
+    public CompletableFuture<ResponseEntity<Object>> updateAvailability(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                        @RequestParam Boolean available,
+                                                                        @RequestBody List<Long> itemIds) {
+        log.info("Update availability of {} items, available={}, userId={}", itemIds.size(), available, userId);
+        return itemClient.updateAvailability(userId, itemIds, available);
+    }
+
     @PatchMapping("{itemId}")
-    public ResponseEntity<Object> updateItem(@RequestHeader("X-Sharer-User-Id") long userId,
-                                             @PathVariable Long itemId,
-                                             @RequestBody ItemDto itemDto) {
-        log.info("Updating item {}, userId={}", itemDto, userId);
+    public CompletableFuture<ResponseEntity<Object>> updateItem(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                @PathVariable Long itemId,
+                                                                @RequestBody byte[] itemDto) {
+        log.info("Updating item {}, userId={}", new String(itemDto, StandardCharsets.UTF_8), userId);
         return itemClient.updateItem(userId, itemId, itemDto);
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Object> searchItems(@RequestHeader("X-Sharer-User-Id") long userId,
-                                              @RequestParam String text,
-                                              @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-                                              @RequestParam(defaultValue = "10") @Positive Integer size) {
-        log.info("Searching items by criteria '{}', userId={}, from={}, size={}",
-                text, userId, from, size
+    public CompletableFuture<ResponseEntity<Object>> searchItems(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                 @RequestParam String text,
+                                                                 @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
+                                                                 @RequestParam(defaultValue = "10") @Positive Integer size,
+                                                                 @RequestParam(required = false)
+                                                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                                 @FutureOrPresent LocalDateTime start,
+                                                                 @RequestParam(required = false)
+                                                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                                 @Future LocalDateTime end) {
+        log.info("Searching items by criteria '{}', userId={}, from={}, size={}, start={}, end={}",
+                text, userId, from, size, start, end
         );
-        return itemClient.searchItems(userId, text, from, size);
+        if (start == null && end == null) {
+            return itemClient.searchItems(userId, text, from, size);
+        }
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Необходимо указать и начало, и окончание аренды");
+        }
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("Начало аренды должно быть раньше её окончания");
+        }
+        return itemClient.searchAvailableItems(userId, text, start, end, from, size);
+    }
+
+    @GetMapping("{itemId}/availability")
+    public CompletableFuture<ResponseEntity<Object>> getAvailability(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                     @PathVariable Long itemId,
+                                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                                     LocalDateTime from,
+                                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                                     LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало интервала должно быть раньше его окончания");
+        }
+        log.info("Get availability itemId={}, from={}, to={}, userId={}", itemId, from, to, userId);
+        return itemClient.getAvailability(userId, itemId, from, to);
     }
 
     @PostMapping("{itemId}/comment")
-    public ResponseEntity<Object> saveNewComment(@RequestHeader("X-Sharer-User-Id") long userId,
-                                                 @PathVariable long itemId,
-                                                 @Valid @RequestBody CommentDto commentDto) {
+    public CompletableFuture<ResponseEntity<Object>> saveNewComment(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                    @PathVariable long itemId,
+                                                                    @Valid @RequestBody CommentDto commentDto) {
         log.info(" Commenting on item itemId={}, text={}, userId={}",
                 itemId, commentDto.getText(), userId
         );
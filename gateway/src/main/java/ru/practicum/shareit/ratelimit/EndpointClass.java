@@ -0,0 +1,17 @@
+package ru.practicum.shareit.ratelimit;
+
+import javax.servlet.http.HttpServletRequest;
+
+public enum EndpointClass {
+    READ,
+    WRITE,
+    SEARCH;
+
+    public static EndpointClass of(HttpServletRequest request) {
+        if (request.getRequestURI().endsWith("/search")) {
+            return SEARCH;
+        }
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) ? READ : WRITE;
+    }
+}
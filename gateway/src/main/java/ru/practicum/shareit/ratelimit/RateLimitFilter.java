@@ -0,0 +1,64 @@
+package ru.practicum.shareit.ratelimit;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+@Slf4j
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    private final TokenBucketLimiter limiter;
+
+    // подзапросы пакета учитываются по отдельности при выполнении
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return "/batch".equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Long userId = parseUserId(request.getHeader(USER_HEADER));
+        if (userId == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        EndpointClass endpointClass = EndpointClass.of(request);
+        Duration wait = limiter.tryAcquire(userId, endpointClass);
+        if (wait.isZero()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long retryAfter = Math.max(1, (wait.toMillis() + 999) / 1000);
+        log.info("Rate limit exceeded userId={}, endpoints={}, retryAfter={}s", userId, endpointClass, retryAfter);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\":\"Too many requests\"}");
+    }
+
+    private static Long parseUserId(String header) {
+        if (header == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(header);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
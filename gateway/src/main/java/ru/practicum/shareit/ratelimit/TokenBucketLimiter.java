@@ -0,0 +1,99 @@
+package ru.practicum.shareit.ratelimit;
+
+import ru.practicum.shareit.config.RateLimitProperties;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+// token bucket в форме GCRA: состояние корзины - одно число, теоретическое время следующего запроса (TAT)
+public class TokenBucketLimiter implements AutoCloseable {
+    private final ConcurrentHashMap<Long, AtomicLongArray> buckets = new ConcurrentHashMap<>();
+    private final long[] intervalNanos = new long[EndpointClass.values().length];
+    private final long[] capacityNanos = new long[EndpointClass.values().length];
+    private final LongSupplier nanoClock;
+    private final ScheduledExecutorService evictor;
+
+    public TokenBucketLimiter(RateLimitProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    // часы подменяются в тестах, чтобы пополнение корзин не зависело от реального времени
+    TokenBucketLimiter(RateLimitProperties properties, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        configure(EndpointClass.READ, properties.getRead());
+        configure(EndpointClass.WRITE, properties.getWrite());
+        configure(EndpointClass.SEARCH, properties.getSearch());
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getEvictionInterval().toMillis();
+        evictor.scheduleWithFixedDelay(this::evictIdle, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // Duration.ZERO, если запрос разрешён, иначе время ожидания до следующего разрешённого
+    public Duration tryAcquire(long userId, EndpointClass endpointClass) {
+        AtomicLongArray userBuckets = buckets.get(userId);
+        if (userBuckets == null) {
+            userBuckets = buckets.computeIfAbsent(userId, id -> newBuckets());
+        }
+        int slot = endpointClass.ordinal();
+        long interval = intervalNanos[slot];
+        long capacity = capacityNanos[slot];
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long tat = userBuckets.get(slot);
+            long next = (tat - now > 0 ? tat : now) + interval;
+            long excess = next - now - capacity;
+            if (excess > 0) {
+                return Duration.ofNanos(excess);
+            }
+            if (userBuckets.compareAndSet(slot, tat, next)) {
+                return Duration.ZERO;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+    }
+
+    // корзина, у которой TAT в прошлом, полна - её можно удалить, новая будет равнозначна
+    void evictIdle() {
+        long now = nanoClock.getAsLong();
+        buckets.values().removeIf(userBuckets -> {
+            for (int slot = 0; slot < userBuckets.length(); slot++) {
+                if (userBuckets.get(slot) - now > 0) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    private void configure(EndpointClass endpointClass, RateLimitProperties.Limit limit) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / limit.getPermitsPerSecond());
+        intervalNanos[endpointClass.ordinal()] = interval;
+        capacityNanos[endpointClass.ordinal()] = interval * limit.getBurst();
+    }
+
+    private AtomicLongArray newBuckets() {
+        AtomicLongArray userBuckets = new AtomicLongArray(EndpointClass.values().length);
+        long now = nanoClock.getAsLong();
+        for (int slot = 0; slot < userBuckets.length(); slot++) {
+            userBuckets.set(slot, now);
+        }
+        return userBuckets;
+    }
+}
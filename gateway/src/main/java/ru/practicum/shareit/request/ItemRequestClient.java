@@ -1,34 +1,51 @@
 package ru.practicum.shareit.request;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.client.RestTemplate;
+import ru.practicum.shareit.client.AsyncServerClient;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ClientGuard;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.SingleFlight;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class ItemRequestClient extends BaseClient {
-    public ItemRequestClient(RestTemplate rest) {
-        super(rest);
+    public ItemRequestClient(RestTemplate rest, @Nullable AsyncServerClient async, ResponseCache cache,
+                             SingleFlight singleFlight, ClientGuard guard) {
+        super(rest, async, cache, singleFlight, guard);
     }
 
-    public ResponseEntity<Object> saveNewRequest(long userId, ItemRequestDto itemRequestDto) {
+    public CompletableFuture<ResponseEntity<Object>> saveNewRequest(long userId, ItemRequestDto itemRequestDto) {
         return post("", userId, itemRequestDto);
     }
 
-    public ResponseEntity<Object> getAllByRequestor(long userId) {
+    public CompletableFuture<ResponseEntity<Object>> getAllByRequestor(long userId) {
         return get("", userId);
     }
 
-    public ResponseEntity<Object> getAll(long userId, Integer from, Integer size) {
+    public CompletableFuture<ResponseEntity<Object>> getAllByRequestor(long userId, Integer from, Integer size) {
         Map<String, Object> parameters = Map.of(
                 "from", from,
                 "size", size
         );
-        return get("/all?from={from}&size={size}", userId, parameters);
+        return get("?from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> getItemRequest(long userId, Long requestId) {
-        return get("/" + requestId, userId);
+    public CompletableFuture<ResponseEntity<Object>> getAll(long userId, Integer from, Integer size, @Nullable String after) {
+        Map<String, Object> parameters = new HashMap<>(Map.of(
+                "from", from,
+                "size", size
+        ));
+        return get("/all?from={from}&size={size}" + afterParameter(parameters, after), userId, parameters);
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> getItemRequest(long userId, Long requestId,
+                                                                    @Nullable String ifNoneMatch) {
+        return getCached("/" + requestId, userId, ifNoneMatch);
     }
 }
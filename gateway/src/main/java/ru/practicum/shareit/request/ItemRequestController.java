@@ -2,6 +2,7 @@ package ru.practicum.shareit.request;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -12,6 +13,8 @@ import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 
+import java.util.concurrent.CompletableFuture;
+
 @Controller
 @RequestMapping(path = "/requests")
 @RequiredArgsConstructor
@@ -21,30 +24,36 @@ public class ItemRequestController {
     private final ItemRequestClient itemRequestClient;
 
     @PostMapping
-    public ResponseEntity<Object> saveNewRequest(@RequestHeader("X-Sharer-User-Id") long userId,
-                                                 @Valid @RequestBody ItemRequestDto itemRequestDto) {
+    public CompletableFuture<ResponseEntity<Object>> saveNewRequest(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                    @Valid @RequestBody ItemRequestDto itemRequestDto) {
         log.info("Creating request itemRequestDto={}, userId={}", itemRequestDto, userId);
         return itemRequestClient.saveNewRequest(userId, itemRequestDto);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getAllByRequestor(@RequestHeader("X-Sharer-User-Id") long userId) {
-        log.info("Get item requests: userId={}", userId);
-        return itemRequestClient.getAllByRequestor(userId);
+    public CompletableFuture<ResponseEntity<Object>> getAllByRequestor(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                       @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+                                                                       @RequestParam(required = false) @Positive Integer size) {
+        log.info("Get item requests: userId={}, from={}, size={}", userId, from, size);
+        return size == null
+                ? itemRequestClient.getAllByRequestor(userId)
+                : itemRequestClient.getAllByRequestor(userId, from, size);
     }
 
     @GetMapping("all")
-    public ResponseEntity<Object> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
-                                         @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                         @RequestParam(defaultValue = "10") @Positive int size) {
-        log.info("Get all item requests: from={}, size={}, userId={}", from, size, userId);
-        return itemRequestClient.getAll(userId, from, size);
+    public CompletableFuture<ResponseEntity<Object>> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                            @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+                                                            @RequestParam(defaultValue = "10") @Positive int size,
+                                                            @RequestParam(required = false) String after) {
+        log.info("Get all item requests: from={}, size={}, after={}, userId={}", from, size, after, userId);
+        return itemRequestClient.getAll(userId, from, size, after);
     }
 
     @GetMapping("{requestId}")
-    public ResponseEntity<Object> getItemRequest(@RequestHeader("X-Sharer-User-Id") long userId,
-                                                 @PathVariable long requestId) {
+    public CompletableFuture<ResponseEntity<Object>> getItemRequest(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                    @PathVariable long requestId,
+                                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Get item request: requestId={}, userId={}", requestId, userId);
-        return itemRequestClient.getItemRequest(userId, requestId);
+        return itemRequestClient.getItemRequest(userId, requestId, ifNoneMatch);
     }
 }
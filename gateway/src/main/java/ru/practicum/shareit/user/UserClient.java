@@ -1,32 +1,44 @@
 package ru.practicum.shareit.user;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.client.RestTemplate;
+import ru.practicum.shareit.client.AsyncServerClient;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ClientGuard;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.SingleFlight;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import java.util.concurrent.CompletableFuture;
+
 public class UserClient extends BaseClient {
-    public UserClient(RestTemplate rest) {
-        super(rest);
+    public UserClient(RestTemplate rest, @Nullable AsyncServerClient async, ResponseCache cache,
+                      SingleFlight singleFlight, ClientGuard guard) {
+        super(rest, async, cache, singleFlight, guard);
     }
 
-    public ResponseEntity<Object> getUsers() {
+    public CompletableFuture<ResponseEntity<Object>> getUsers() {
         return get("");
     }
 
-    public ResponseEntity<Object> getUser(Long userId) {
-        return get("/" + userId);
+    public CompletableFuture<ResponseEntity<Object>> getUser(Long userId, @Nullable String ifNoneMatch) {
+        return getCached("/" + userId, null, ifNoneMatch);
     }
 
-    public ResponseEntity<Object> saveNewUser(UserDto userDto) {
+    public CompletableFuture<ResponseEntity<Object>> saveNewUser(UserDto userDto) {
         return post("", userDto);
     }
 
-    public ResponseEntity<Object> updateUser(Long userId, UserDto userDto) {
+    public CompletableFuture<ResponseEntity<Object>> saveNewUsers(byte[] userDtos) {
+        return post("/batch", userDtos);
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> updateUser(Long userId, byte[] userDto) {
         return patch("/" + userId, userDto);
     }
 
-    public ResponseEntity<Object> deleteUser(Long userId) {
+    public CompletableFuture<ResponseEntity<Object>> deleteUser(Long userId) {
         return delete("/" + userId);
     }
 }
@@ -2,6 +2,7 @@ package ru.practicum.shareit.user;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -9,6 +10,8 @@ import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import javax.validation.Valid;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 @RequestMapping(path = "/users")
@@ -19,32 +22,39 @@ public class UserController {
     private final UserClient userClient;
 
     @GetMapping
-    public ResponseEntity<Object> getUsers() {
+    public CompletableFuture<ResponseEntity<Object>> getUsers() {
         log.info("Get all users");
         return userClient.getUsers();
     }
 
     @GetMapping("{id}")
-    public ResponseEntity<Object> getUser(@PathVariable long id) {
+    public CompletableFuture<ResponseEntity<Object>> getUser(@PathVariable long id,
+                                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Get user userId={}", id);
-        return userClient.getUser(id);
+        return userClient.getUser(id, ifNoneMatch);
     }
 
     @PostMapping
-    public ResponseEntity<Object> saveNewUser(@Valid @RequestBody UserDto userDto) {
+    public CompletableFuture<ResponseEntity<Object>> saveNewUser(@Valid @RequestBody UserDto userDto) {
         log.info("Creating user userDto={}", userDto);
         return userClient.saveNewUser(userDto);
     }
 
+    @PostMapping("batch")
+    public CompletableFuture<ResponseEntity<Object>> saveNewUsers(@RequestBody byte[] userDtos) {
+        log.info("Creating users batch of {} bytes", userDtos.length);
+        return userClient.saveNewUsers(userDtos);
+    }
+
     @PatchMapping("{id}")
-    public ResponseEntity<Object> updateUser(@PathVariable long id,
-                                             @RequestBody UserDto userDto) {
-        log.info("Updating user userId={}, userDto={}", id, userDto);
+    public CompletableFuture<ResponseEntity<Object>> updateUser(@PathVariable long id,
+                                                                @RequestBody byte[] userDto) {
+        log.info("Updating user userId={}, userDto={}", id, new String(userDto, StandardCharsets.UTF_8));
         return userClient.updateUser(id, userDto);
     }
 
     @DeleteMapping("{id}")
-    public ResponseEntity<Object> deleteUser(@PathVariable long id) {
+    public CompletableFuture<ResponseEntity<Object>> deleteUser(@PathVariable long id) {
         log.info("Deleting user userId={}", id);
         return userClient.deleteUser(id);
     }
@@ -0,0 +1,215 @@
+package ru.practicum.shareit.batch;
+
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.shareit.booking.BookingClient;
+import ru.practicum.shareit.booking.BookingController;
+import ru.practicum.shareit.config.BatchConfig;
+import ru.practicum.shareit.config.RateLimitConfig;
+import ru.practicum.shareit.ratelimit.EndpointClass;
+import ru.practicum.shareit.ratelimit.TokenBucketLimiter;
+import ru.practicum.shareit.user.UserClient;
+import ru.practicum.shareit.user.UserController;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// подзапросы проходят через настоящие контроллеры, клиенты сервера и лимитер подменены
+@WebMvcTest(controllers = {BatchController.class, UserController.class, BookingController.class})
+@Import({BatchConfig.class, RateLimitConfig.class, BatchControllerTest.MetricsConfig.class})
+class BatchControllerTest {
+    @Autowired
+    private MockMvc mvc;
+    @MockBean
+    private UserClient userClient;
+    @MockBean
+    private BookingClient bookingClient;
+    @MockBean
+    private TokenBucketLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        when(limiter.tryAcquire(anyLong(), any())).thenReturn(Duration.ZERO);
+        when(userClient.getUser(any(), any())).thenAnswer(invocation -> CompletableFuture.completedFuture(
+                json("{\"id\":" + invocation.getArgument(0) + "}")));
+        when(userClient.saveNewUser(any())).thenReturn(CompletableFuture.completedFuture(json("{\"id\":1}")));
+    }
+
+    @Test
+    void invalidItemFailsAloneWithValidationError() throws Exception {
+        MvcResult result = batch("["
+                + "{\"method\":\"POST\",\"path\":\"/users\",\"body\":{\"name\":\"Иван\",\"email\":\"ivan@mail.ru\"}},"
+                + "{\"method\":\"POST\",\"path\":\"/users\",\"body\":{\"name\":\"\",\"email\":\"не почта\"}},"
+                + "{\"method\":\"GET\",\"path\":\"/bookings?state=UNKNOWN\"}"
+                + "]");
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].body.id").value(1))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].body.error", containsString("Email введён некорректно")))
+                .andExpect(jsonPath("$[2].status").value(400))
+                .andExpect(jsonPath("$[2].body.error").value("Unknown state: UNKNOWN"));
+        verify(userClient, times(1)).saveNewUser(any());
+    }
+
+    @Test
+    void nestedBatchAndExportsAreRejected() throws Exception {
+        MvcResult result = batch("["
+                + "{\"method\":\"POST\",\"path\":\"/batch\",\"body\":[{\"method\":\"GET\",\"path\":\"/users/1\"}]},"
+                + "{\"method\":\"GET\",\"path\":\"/bookings/export\"}"
+                + "]");
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(jsonPath("$[0].status").value(400))
+                .andExpect(jsonPath("$[0].body.error").value("Запрос POST /batch нельзя выполнить в пакете"))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].body.error").value("Запрос GET /bookings/export нельзя выполнить в пакете"));
+        verify(userClient, never()).getUser(any(), any());
+        verify(bookingClient, never()).exportBookings(anyLong(), any());
+    }
+
+    @Test
+    void unknownRouteIsNotFound() throws Exception {
+        MvcResult result = batch("[{\"method\":\"GET\",\"path\":\"/nothing/1\"}]");
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(jsonPath("$[0].status").value(404))
+                .andExpect(jsonPath("$[0].body.error").value("Не найден обработчик GET /nothing/1"));
+    }
+
+    @Test
+    void responsesKeepRequestOrderWhenCompletedOutOfOrder() throws Exception {
+        when(userClient.getUser(eq(1L), any())).thenReturn(CompletableFuture.supplyAsync(() -> json("{\"id\":1}"),
+                CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS)));
+        when(userClient.getUser(eq(2L), any())).thenReturn(CompletableFuture.supplyAsync(() -> json("{\"id\":2}"),
+                CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS)));
+
+        MvcResult result = batch("["
+                + "{\"method\":\"GET\",\"path\":\"/users/1\"},"
+                + "{\"method\":\"GET\",\"path\":\"/users/2\"},"
+                + "{\"method\":\"GET\",\"path\":\"/users/3\"}"
+                + "]");
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(jsonPath("$[0].body.id").value(1))
+                .andExpect(jsonPath("$[1].body.id").value(2))
+                .andExpect(jsonPath("$[2].body.id").value(3));
+    }
+
+    @Test
+    void everyItemIsChargedToTheLimiter() throws Exception {
+        when(limiter.tryAcquire(7L, EndpointClass.WRITE))
+                .thenReturn(Duration.ZERO, Duration.ZERO, Duration.ofSeconds(1));
+
+        MvcResult result = batch("["
+                + "{\"method\":\"GET\",\"path\":\"/users/1\"},"
+                + "{\"method\":\"POST\",\"path\":\"/users\",\"body\":{\"name\":\"Иван\",\"email\":\"ivan@mail.ru\"}},"
+                + "{\"method\":\"POST\",\"path\":\"/users\",\"body\":{\"name\":\"Пётр\",\"email\":\"petr@mail.ru\"}}"
+                + "]");
+
+        // сам пакет списывает один запрос записи, каждый подзапрос - свой;
+        // подзапросы записи выполняются параллельно, поэтому отказ может достаться любому из них
+        String batched = mvc.perform(asyncDispatch(result))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+        assertThat(JsonPath.<List<Integer>>read(batched, "$[1:].status")).containsExactlyInAnyOrder(200, 429);
+        assertThat(JsonPath.<List<String>>read(batched, "$[?(@.status == 429)].body.error"))
+                .containsExactly("Too many requests");
+        verify(limiter, times(1)).tryAcquire(7L, EndpointClass.READ);
+        verify(limiter, times(3)).tryAcquire(7L, EndpointClass.WRITE);
+        verify(userClient, times(1)).saveNewUser(any());
+    }
+
+    @Test
+    void errorStatusesMatchSingleRequests() throws Exception {
+        MockHttpServletRequestBuilder[] single = {
+                post("/users").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"\"}"),
+                get("/users/abc"),
+                put("/users"),
+                get("/bookings").param("state", "UNKNOWN").header("X-Sharer-User-Id", "7"),
+                post("/users").contentType(MediaType.APPLICATION_JSON).content("[1, 2]")
+        };
+        MvcResult result = batch("["
+                + "{\"method\":\"POST\",\"path\":\"/users\",\"body\":{\"name\":\"\"}},"
+                + "{\"method\":\"GET\",\"path\":\"/users/abc\"},"
+                + "{\"method\":\"PUT\",\"path\":\"/users\"},"
+                + "{\"method\":\"GET\",\"path\":\"/bookings?state=UNKNOWN\"},"
+                + "{\"method\":\"POST\",\"path\":\"/users\",\"body\":[1, 2]}"
+                + "]");
+        String batched = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        for (int i = 0; i < single.length; i++) {
+            int expected = mvc.perform(single[i])
+                    .andReturn()
+                    .getResponse()
+                    .getStatus();
+            assertThat(expected).isBetween(400, 499);
+            assertThat(JsonPath.<Integer>read(batched, "$[" + i + "].status")).isEqualTo(expected);
+        }
+    }
+
+    private MvcResult batch(String requests) throws Exception {
+        return mvc.perform(post("/batch")
+                        .header("X-Sharer-User-Id", "7")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requests.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private static ResponseEntity<Object> json(String body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ru.practicum.shareit.batch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubRequestTest {
+    @Test
+    void keepsItsOwnCopyAfterBatchRequestIsRecycled() {
+        StaticWebApplicationContext context = new StaticWebApplicationContext();
+        MockHttpServletRequest batchRequest = new MockHttpServletRequest("POST", "/batch");
+        batchRequest.setServerName("gateway");
+        batchRequest.setServerPort(8080);
+        batchRequest.setRemoteAddr("10.0.0.1");
+        batchRequest.addHeader(HttpHeaders.ACCEPT_LANGUAGE, "ru-RU");
+        batchRequest.addPreferredLocale(Locale.forLanguageTag("ru-RU"));
+        batchRequest.addHeader("X-Sharer-User-Id", "1");
+        batchRequest.setAttribute(DispatcherServlet.WEB_APPLICATION_CONTEXT_ATTRIBUTE, context);
+        batchRequest.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("id", "5"));
+
+        SubRequest request = new SubRequest(batchRequest, 7, "patch", "/items/3?text=дрель",
+                "{\"name\":\"Дрель\"}".getBytes(StandardCharsets.UTF_8));
+
+        // контейнер переиспользует запрос пакета для следующего клиента
+        batchRequest.clearAttributes();
+        batchRequest.setServerName("other");
+        batchRequest.setRemoteAddr("10.0.0.2");
+        batchRequest.removeHeader("X-Sharer-User-Id");
+        batchRequest.addHeader("X-Sharer-User-Id", "2");
+
+        assertThat(request.getMethod()).isEqualTo("PATCH");
+        assertThat(request.getRequestURI()).isEqualTo("/items/3");
+        assertThat(request.getParameter("text")).isEqualTo("дрель");
+        assertThat(request.getRequestURL()).hasToString("http://gateway:8080/items/3");
+        assertThat(request.getRemoteAddr()).isEqualTo("10.0.0.1");
+        assertThat(request.getLocale()).isEqualTo(Locale.forLanguageTag("ru-RU"));
+        assertThat(request.getHeader("X-Sharer-User-Id")).isEqualTo("7");
+        assertThat(request.getContentLength()).isEqualTo("{\"name\":\"Дрель\"}".getBytes(StandardCharsets.UTF_8).length);
+        assertThat(request.getAttribute(DispatcherServlet.WEB_APPLICATION_CONTEXT_ATTRIBUTE)).isSameAs(context);
+        // атрибуты разбора пути пакета к подзапросу не относятся
+        assertThat(request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE)).isNull();
+        assertThat(Collections.list(request.getAttributeNames()))
+                .containsExactly(DispatcherServlet.WEB_APPLICATION_CONTEXT_ATTRIBUTE);
+        assertThat(request.getSession(false)).isNull();
+    }
+}
@@ -0,0 +1,119 @@
+package ru.practicum.shareit.booking;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// выгрузка через шлюз целиком: заглушка сервера отдаёт первую часть строк и ждёт, пока клиент
+// шлюза не получит первую строку. Если шлюз копит ответ до конца, ожидание заглушки истекает
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ExportStreamingTest {
+    // заметно больше буфера ответа Tomcat (8 КБ) и буфера копирования (4 КБ)
+    private static final int FIRST_PART = 500;
+    private static final CountDownLatch FIRST_LINE_RECEIVED = new CountDownLatch(1);
+    private static final AtomicBoolean STREAMED = new AtomicBoolean();
+    private static final HttpServer SERVER = startServer();
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void serverUrl(DynamicPropertyRegistry registry) {
+        registry.add("shareit-server.url", () -> "http://localhost:" + SERVER.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        SERVER.stop(0);
+    }
+
+    @Test
+    void exportIsForwardedLineByLineBeforeServerFinishes() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/bookings/export"))
+                .header("X-Sharer-User-Id", "1")
+                .build();
+
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient()
+                .send(request, HttpResponse.BodyHandlers.ofLines());
+        List<JsonNode> bookings = new ArrayList<>();
+        try (Stream<String> lines = response.body()) {
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                bookings.add(objectMapper.readTree(iterator.next()));
+                FIRST_LINE_RECEIVED.countDown();
+            }
+        }
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_TYPE))
+                .hasValueSatisfying(type -> assertThat(type).startsWith(MediaType.APPLICATION_NDJSON_VALUE));
+        assertThat(STREAMED).isTrue();
+        assertThat(bookings).hasSize(FIRST_PART + 1).allMatch(JsonNode::isObject);
+        assertThat(bookings).extracting(booking -> booking.get("id").asLong())
+                .containsExactlyElementsOf(() -> Stream.iterate(1L, id -> id + 1).limit(FIRST_PART + 1).iterator());
+    }
+
+    private static HttpServer startServer() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/bookings/export", ExportStreamingTest::export);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void export(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE);
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int id = 1; id <= FIRST_PART; id++) {
+                out.write(line(id));
+            }
+            out.flush();
+            try {
+                STREAMED.set(FIRST_LINE_RECEIVED.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.write(line(FIRST_PART + 1));
+        }
+    }
+
+    private static byte[] line(long id) {
+        return ("{\"id\":" + id + ",\"status\":\"APPROVED\",\"item\":{\"id\":1,\"name\":\"Дрель\"},"
+                + "\"booker\":{\"id\":1,\"name\":\"Иван\"}}\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,116 @@
+package ru.practicum.shareit.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// java.net.http не распаковывает gzip сам: клиент асинхронного режима просит сжатие и распаковывает ответ,
+// заглушка сервера сжимает тело только по Accept-Encoding, как Tomcat с server.compression
+class AsyncServerClientTest {
+    private static final String BODY = "[" + "{\"id\":1,\"name\":\"Дрель\",\"available\":true},".repeat(100)
+            + "{\"id\":2,\"name\":\"Пила\",\"available\":false}]";
+
+    private final List<String> acceptEncoding = new CopyOnWriteArrayList<>();
+    private final List<Integer> sentBytes = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/items", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void gzipResponseIsDecoded() {
+        ResponseEntity<Object> response = client(true).exchange(HttpMethod.GET, "/items", new HttpHeaders(),
+                null, null).join();
+
+        assertThat(acceptEncoding).containsExactly("gzip");
+        assertThat(sentBytes.get(0)).isLessThan(BODY.getBytes(StandardCharsets.UTF_8).length / 10);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders()).doesNotContainKeys(HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_LENGTH);
+        assertThat(new String((byte[]) response.getBody(), StandardCharsets.UTF_8)).isEqualTo(BODY);
+    }
+
+    @Test
+    void compressionIsNotRequestedWhenDisabled() {
+        ResponseEntity<Object> response = client(false).exchange(HttpMethod.GET, "/items", new HttpHeaders(),
+                null, null).join();
+
+        assertThat(acceptEncoding).containsExactly("");
+        assertThat(sentBytes.get(0)).isEqualTo(BODY.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(new String((byte[]) response.getBody(), StandardCharsets.UTF_8)).isEqualTo(BODY);
+    }
+
+    @Test
+    void emptyGzipResponseIsPassedThrough() {
+        ResponseEntity<Object> response = client(true).exchange(HttpMethod.DELETE, "/items", new HttpHeaders(),
+                null, null).join();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNull();
+    }
+
+    private AsyncServerClient client(boolean compression) {
+        return new AsyncServerClient(HttpClient.newHttpClient(), new ObjectMapper(),
+                "http://localhost:" + server.getAddress().getPort(), Duration.ofSeconds(5), compression);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String encoding = exchange.getRequestHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING);
+        acceptEncoding.add(encoding == null ? "" : encoding);
+        boolean gzip = encoding != null && encoding.contains("gzip");
+        if (gzip) {
+            exchange.getResponseHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        if ("DELETE".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+        if (gzip) {
+            body = gzip(body);
+        }
+        sentBytes.add(body.length);
+        exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+}
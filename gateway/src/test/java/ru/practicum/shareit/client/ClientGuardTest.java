@@ -0,0 +1,204 @@
+package ru.practicum.shareit.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// сервер подменяется заглушкой, которая отвечает ошибками, медленно или не отвечает до сигнала
+class ClientGuardTest {
+    private static final Duration SLOW_CALL = Duration.ofMillis(200);
+    private static final Duration OPEN_STATE = Duration.ofMillis(300);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private final AtomicInteger hits = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile long delayMillis;
+    private volatile long bodyDelayMillis;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch received = new CountDownLatch(1);
+    private volatile boolean blocking;
+
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+    private BaseClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+
+        circuitBreaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .slowCallDurationThreshold(SLOW_CALL)
+                .slowCallRateThreshold(50)
+                .waitDurationInOpenState(OPEN_STATE)
+                .permittedNumberOfCallsInHalfOpenState(1)
+                .ignoreExceptions(BulkheadFullException.class, HttpClientErrorException.class)
+                .build());
+        bulkhead = Bulkhead.of("test", BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+
+        RestTemplate rest = new RestTemplate();
+        rest.setUriTemplateHandler(new DefaultUriBuilderFactory(
+                "http://localhost:" + server.getAddress().getPort() + "/bookings"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        client = new BaseClient(rest, null, new ResponseCache(1024 * 1024, registry),
+                new SingleFlight(Duration.ZERO, registry), new ClientGuard(circuitBreaker, bulkhead));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void serverErrorsOpenBreakerAndHalfOpenProbeClosesIt() throws Exception {
+        status = 500;
+        for (int i = 0; i < 4; i++) {
+            assertThat(client.get("/1", 1L).get().getStatusCodeValue()).isEqualTo(500);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        ResponseEntity<Object> rejected = client.get("/1", 1L).get();
+        assertThat(rejected.getStatusCodeValue()).isEqualTo(503);
+        assertThat(hits).hasValue(4);
+
+        status = 200;
+        Thread.sleep(OPEN_STATE.toMillis() + 100);
+        assertThat(client.get("/1", 1L).get().getStatusCodeValue()).isEqualTo(200);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(hits).hasValue(5);
+    }
+
+    @Test
+    void clientErrorsDoNotOpenBreaker() throws Exception {
+        status = 404;
+        for (int i = 0; i < 6; i++) {
+            assertThat(client.get("/1", 1L).get().getStatusCodeValue()).isEqualTo(404);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(hits).hasValue(6);
+    }
+
+    @Test
+    void slowResponsesOpenBreaker() throws Exception {
+        delayMillis = SLOW_CALL.toMillis() + 100;
+        for (int i = 0; i < 4; i++) {
+            assertThat(client.get("/1", 1L).get().getStatusCodeValue()).isEqualTo(200);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(client.get("/1", 1L).get().getStatusCodeValue()).isEqualTo(503);
+    }
+
+    @Test
+    void fullBulkheadRejectsWithoutCallingServer() throws Exception {
+        blocking = true;
+        CompletableFuture<ResponseEntity<Object>> first = CompletableFuture.supplyAsync(() -> client.get("/1", 1L).join());
+        assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(client.get("/2", 1L).get().getStatusCodeValue()).isEqualTo(503);
+        assertThat(hits).hasValue(1);
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).getStatusCodeValue()).isEqualTo(200);
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isZero();
+    }
+
+    @Test
+    void longExportIsTimedOnlyUntilFirstByte() {
+        // первый вызов прогревает RestTemplate и мог бы сам оказаться медленным
+        client.stream("/export", 1L, new ClientGuard(CircuitBreaker.ofDefaults("warm-up"),
+                Bulkhead.ofDefaults("warm-up")), new MockHttpServletResponse());
+        bodyDelayMillis = SLOW_CALL.toMillis() + 100;
+        ClientGuard exportGuard = new ClientGuard(circuitBreaker, bulkhead);
+        for (int i = 0; i < 4; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            client.stream("/export", 1L, exportGuard, response);
+            assertThat(response.getStatus()).isEqualTo(200);
+        }
+        assertThat(circuitBreaker.getMetrics().getNumberOfSlowCalls()).isZero();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void exportServerErrorsOpenBreaker() throws Exception {
+        status = 500;
+        ClientGuard exportGuard = new ClientGuard(circuitBreaker, bulkhead);
+        for (int i = 0; i < 4; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            client.stream("/export", 1L, exportGuard, response);
+            assertThat(response.getStatus()).isEqualTo(500);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        client.stream("/export", 1L, exportGuard, rejected);
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(hits).hasValue(4);
+        assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(1);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        hits.incrementAndGet();
+        received.countDown();
+        try {
+            if (blocking) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = "{\"id\":1}\n".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+            out.flush();
+            if (bodyDelayMillis > 0) {
+                Thread.sleep(bodyDelayMillis);
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
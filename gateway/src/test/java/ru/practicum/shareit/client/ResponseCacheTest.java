@@ -0,0 +1,179 @@
+package ru.practicum.shareit.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// кэш проверяется сам по себе и через клиента против заглушки сервера, которая отвечает 304 на совпавший ETag
+class ResponseCacheTest {
+    private static final String ETAG = "\"1-0\"";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ResponseCache cache = new ResponseCache(100, registry);
+    private final List<String> ifNoneMatch = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private BaseClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+
+        // PATCH поддерживает только клиент Apache, как в приложении
+        RestTemplate rest = new RestTemplate(new HttpComponentsClientHttpRequestFactory());
+        rest.setUriTemplateHandler(new DefaultUriBuilderFactory(
+                "http://localhost:" + server.getAddress().getPort() + "/bookings"));
+        client = new BaseClient(rest, null, new ResponseCache(1024 * 1024, registry),
+                new SingleFlight(Duration.ZERO, registry),
+                new ClientGuard(CircuitBreaker.ofDefaults("test"), Bulkhead.ofDefaults("test")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedOverByteBudget() {
+        ResponseCache.Key first = key("/1", 1L);
+        ResponseCache.Key second = key("/2", 1L);
+        ResponseCache.Key third = key("/3", 1L);
+        store(first, 40);
+        store(second, 40);
+        cache.get(first);
+
+        store(third, 40);
+
+        assertThat(cache.get(first)).isNotNull();
+        assertThat(cache.get(second)).isNull();
+        assertThat(cache.get(third)).isNotNull();
+        assertThat(registry.get("gateway.response.cache.size").gauge().value()).isEqualTo(80);
+        assertThat(registry.get("gateway.response.cache.entries").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void responseLargerThanBudgetIsNotCached() {
+        ResponseCache.Key small = key("/1", 1L);
+        store(small, 60);
+
+        store(key("/2", 1L), 101);
+
+        assertThat(cache.get(key("/2", 1L))).isNull();
+        assertThat(cache.get(small)).isNotNull();
+    }
+
+    @Test
+    void notModifiedReusesCachedBody() {
+        ResponseCache.Key key = key("/1", 1L);
+        store(key, 10);
+        ResponseCache.Entry cached = cache.get(key);
+
+        ResponseEntity<Object> response = cache.handle(key, cached,
+                ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETAG).build(), 1_000);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo(ETAG);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(response.getBody()).isSameAs(cached.getBody());
+        assertThat(registry.get("gateway.response.cache.requests").tag("result", "hit").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void revalidationSendsEtagAndAnswersFromCache() {
+        ResponseEntity<Object> first = client.getCached("/1", 1L, null).join();
+        ResponseEntity<Object> second = client.getCached("/1", 1L, null).join();
+
+        assertThat(ifNoneMatch).containsExactly("", ETAG);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(second.getBody()).isEqualTo(first.getBody());
+        assertThat(body(second)).isEqualTo("{\"id\":1,\"booker\":1}");
+    }
+
+    @Test
+    void successfulMutationEvictsResource() {
+        client.getCached("/1", 1L, null).join();
+        client.getCached("/2", 1L, null).join();
+
+        ResponseEntity<Object> approved = client.patch("/1?approved=true", 1L).join();
+        client.getCached("/1", 1L, null).join();
+        client.getCached("/2", 1L, null).join();
+
+        assertThat(approved.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(ifNoneMatch).containsExactly("", "", "", ETAG);
+    }
+
+    @Test
+    void responsesForOneUserAreNotSharedWithAnother() {
+        client.getCached("/1", 1L, null).join();
+
+        ResponseEntity<Object> other = client.getCached("/1", 2L, null).join();
+
+        assertThat(ifNoneMatch).containsExactly("", "");
+        assertThat(body(other)).isEqualTo("{\"id\":1,\"booker\":2}");
+    }
+
+    private void store(ResponseCache.Key key, int size) {
+        cache.handle(key, null, ResponseEntity.ok()
+                .eTag(ETAG)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new byte[size]), 1_000);
+    }
+
+    private static ResponseCache.Key key(String path, Long userId) {
+        return new ResponseCache.Key("BookingClient", path, path, userId);
+    }
+
+    private static String body(ResponseEntity<Object> response) {
+        return new String((byte[]) response.getBody(), StandardCharsets.UTF_8);
+    }
+
+    // тело ответа у каждого пользователя своё, а версия ресурса общая
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        String requested = exchange.getRequestHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+        ifNoneMatch.add(requested == null ? "" : requested);
+        exchange.getResponseHeaders().set(HttpHeaders.ETAG, ETAG);
+        if (ETAG.equals(requested)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        String id = exchange.getRequestURI().getPath().replace("/bookings/", "");
+        byte[] body = ("{\"id\":" + id + ",\"booker\":" + exchange.getRequestHeaders().getFirst("X-Sharer-User-Id") + "}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+    private final SingleFlight singleFlight = new SingleFlight(Duration.ofMinutes(1), new SimpleMeterRegistry());
+    private final AtomicInteger upstream = new AtomicInteger();
+
+    @Test
+    void successfulResponseIsReusedWithinWindow() {
+        SingleFlight.Key key = key("/1", "/1");
+
+        assertThat(get(key).join().getBody()).isEqualTo(1);
+        assertThat(get(key).join().getBody()).isEqualTo(1);
+        assertThat(upstream).hasValue(1);
+    }
+
+    @Test
+    void inFlightRequestIsShared() {
+        SingleFlight.Key key = key("/1", "/1");
+        CompletableFuture<ResponseEntity<Object>> pending = new CompletableFuture<>();
+
+        CompletableFuture<ResponseEntity<Object>> first = singleFlight.execute(key, () -> pending);
+        CompletableFuture<ResponseEntity<Object>> second = get(key);
+        pending.complete(ResponseEntity.ok("ok"));
+
+        assertThat(second.join().getBody()).isEqualTo("ok");
+        assertThat(first.join().getBody()).isEqualTo("ok");
+        assertThat(upstream).hasValue(0);
+    }
+
+    @Test
+    void evictingResourceSendsNextReadUpstream() {
+        SingleFlight.Key item = key("/1", "/1");
+        SingleFlight.Key other = key("/2", "/2");
+        SingleFlight.Key list = key(null, "?from=0&size=10");
+        get(item).join();
+        get(other).join();
+        get(list).join();
+
+        singleFlight.evictResource("BookingClient", "/1");
+
+        assertThat(get(item).join().getBody()).isEqualTo(4);
+        assertThat(get(list).join().getBody()).isEqualTo(5);
+        assertThat(get(other).join().getBody()).isEqualTo(2);
+    }
+
+    @Test
+    void evictingWholeClientKeepsOtherClients() {
+        SingleFlight.Key booking = key("/1", "/1");
+        SingleFlight.Key item = new SingleFlight.Key("ItemClient", "/1", "/1", null, 1L);
+        get(booking).join();
+        get(item).join();
+
+        singleFlight.evictResource("BookingClient", null);
+
+        assertThat(get(booking).join().getBody()).isEqualTo(3);
+        assertThat(get(item).join().getBody()).isEqualTo(2);
+    }
+
+    @Test
+    void errorResponsesAreNotReused() {
+        SingleFlight.Key key = key("/1", "/1");
+        singleFlight.execute(key, () -> CompletableFuture.completedFuture(ResponseEntity.status(500).build())).join();
+
+        assertThat(get(key).join().getBody()).isEqualTo(1);
+    }
+
+    private CompletableFuture<ResponseEntity<Object>> get(SingleFlight.Key key) {
+        return singleFlight.execute(key, () -> CompletableFuture.completedFuture(
+                ResponseEntity.ok(upstream.incrementAndGet())));
+    }
+
+    private static SingleFlight.Key key(String resource, String path) {
+        return new SingleFlight.Key("BookingClient", resource, path, null, 1L);
+    }
+}
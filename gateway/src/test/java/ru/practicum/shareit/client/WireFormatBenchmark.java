@@ -0,0 +1,143 @@
+package ru.practicum.shareit.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// стоимость одного ответа на пути сервер -> шлюз -> клиент: сериализация на сервере плюс работа шлюза.
+// JSON шлюз пропускает как есть, CBOR пришлось бы перекодировать в JSON для клиента. Перекодирование
+// съедает в несколько раз больше CPU, чем экономит, а после gzip CBOR короче JSON лишь на несколько
+// процентов, поэтому между шлюзом и сервером остаётся JSON.
+// Запуск: mvn -pl gateway test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+//         -Dexec.args="-cp %classpath org.openjdk.jmh.Main WireFormatBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+    @Param({"1", "20", "100"})
+    private int bookings;
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private List<Booking> page;
+
+    @Setup
+    public void setUp() throws IOException {
+        page = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 12, 0);
+        for (long i = 0; i < bookings; i++) {
+            page.add(new Booking(i, start.plusDays(i), start.plusDays(i + 1), "APPROVED",
+                    new Item(i, "Дрель " + i, "Простая дрель с аккумулятором " + i, true, 7L, null),
+                    new User(100 + i, "Пользователь " + i, "user" + i + "@mail.ru")));
+        }
+        byte[] jsonBody = json.writeValueAsBytes(page);
+        byte[] cborBody = cbor.writeValueAsBytes(page);
+        System.out.printf("%n%d bookings: json %d B (gzip %d B), cbor %d B (gzip %d B)%n", bookings,
+                jsonBody.length, gzip(jsonBody).length, cborBody.length, gzip(cborBody).length);
+    }
+
+    @Benchmark
+    public byte[] jsonPassThrough() throws JsonProcessingException {
+        return json.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] cborTranscodedAtGateway() throws IOException {
+        return toJson(cbor.writeValueAsBytes(page));
+    }
+
+    // потоковое перекодирование токенов, без построения дерева и DTO
+    private byte[] toJson(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length * 2);
+        try (JsonParser parser = cbor.getFactory().createParser(body);
+             JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEvent(parser);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    public static class Booking {
+        public final long id;
+        public final LocalDateTime start;
+        public final LocalDateTime end;
+        public final String status;
+        public final Item item;
+        public final User booker;
+
+        Booking(long id, LocalDateTime start, LocalDateTime end, String status, Item item, User booker) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.status = status;
+            this.item = item;
+            this.booker = booker;
+        }
+    }
+
+    public static class Item {
+        public final long id;
+        public final String name;
+        public final String description;
+        public final boolean available;
+        public final Long ownerId;
+        public final Long requestId;
+
+        Item(long id, String name, String description, boolean available, Long ownerId, Long requestId) {
+            this.id = id;
+            this.name = name;
+            this.description = description;
+            this.available = available;
+            this.ownerId = ownerId;
+            this.requestId = requestId;
+        }
+    }
+
+    public static class User {
+        public final long id;
+        public final String name;
+        public final String email;
+
+        User(long id, String name, String email) {
+            this.id = id;
+            this.name = name;
+            this.email = email;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ru.practicum.shareit.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// шлюз целиком, сервер подменён заглушкой: в блокирующем режиме ответ пишется в потоке запроса,
+// в асинхронном - после завершения вызова сервера. У каждого режима свой контекст и свой MockMvc
+@SpringBootTest
+@AutoConfigureMockMvc
+class ClientModeTest {
+    private static final HttpServer SERVER = startServer();
+
+    @DynamicPropertySource
+    static void serverUrl(DynamicPropertyRegistry registry) {
+        registry.add("shareit-server.url", () -> "http://localhost:" + SERVER.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        SERVER.stop(0);
+    }
+
+    @Nested
+    @TestPropertySource(properties = "shareit-server.http-client.mode=blocking")
+    class Blocking {
+        @Autowired
+        private MockMvc mvc;
+
+        @Test
+        void completedResponseIsWrittenWithoutAsyncDispatch() throws Exception {
+            mvc.perform(get("/users/1"))
+                    .andExpect(request().asyncNotStarted())
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"1-0\""))
+                    .andExpect(jsonPath("$.name").value("Иван"));
+        }
+
+        @Test
+        void serverErrorIsPassedThrough() throws Exception {
+            mvc.perform(get("/users/404"))
+                    .andExpect(request().asyncNotStarted())
+                    .andExpect(status().isNotFound())
+                    .andExpect(jsonPath("$.error").value("Пользователь не найден"));
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "shareit-server.http-client.mode=async")
+    class Async {
+        @Autowired
+        private MockMvc mvc;
+
+        @Test
+        void responseIsWrittenAfterServerCallCompletes() throws Exception {
+            MvcResult result = mvc.perform(get("/users/1"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"1-0\""))
+                    .andExpect(jsonPath("$.name").value("Иван"));
+        }
+
+        @Test
+        void serverErrorIsPassedThrough() throws Exception {
+            MvcResult result = mvc.perform(get("/users/404"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mvc.perform(asyncDispatch(result))
+                    .andExpect(status().isNotFound())
+                    .andExpect(jsonPath("$.error").value("Пользователь не найден"));
+        }
+    }
+
+    private static HttpServer startServer() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/users/1", exchange -> {
+                exchange.getResponseHeaders().set(HttpHeaders.ETAG, "\"1-0\"");
+                respond(exchange, 200, "{\"id\":1,\"name\":\"Иван\",\"email\":\"ivan@mail.ru\"}");
+            });
+            server.createContext("/users/404", exchange ->
+                    respond(exchange, 404, "{\"error\":\"Пользователь не найден\"}"));
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.shareit.ratelimit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.practicum.shareit.config.RateLimitProperties;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+    private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+    private final TokenBucketLimiter limiter = new TokenBucketLimiter(properties(), clock::get);
+    private final RateLimitFilter filter = new RateLimitFilter(limiter);
+
+    @AfterEach
+    void tearDown() {
+        limiter.close();
+    }
+
+    @Test
+    void rejectedRequestGetsTooManyRequestsWithRetryAfterRoundedUp() throws Exception {
+        assertThat(send("POST", "/items", "1").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = send("POST", "/items", "1");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+        assertThat(rejected.getContentAsString()).isEqualTo("{\"error\":\"Too many requests\"}");
+
+        clock.addAndGet(Duration.ofMillis(2500).toNanos());
+        assertThat(send("PATCH", "/items/1", "1").getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("3");
+
+        clock.addAndGet(Duration.ofMillis(2500).toNanos());
+        assertThat(send("PATCH", "/items/1", "1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void requestsAreChargedToTheirEndpointClass() throws Exception {
+        assertThat(send("POST", "/items", "1").getStatus()).isEqualTo(200);
+        assertThat(send("POST", "/items", "1").getStatus()).isEqualTo(429);
+
+        assertThat(send("GET", "/items/1", "1").getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/items/search", "1").getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/items/search", "1").getStatus()).isEqualTo(429);
+        assertThat(send("GET", "/items", "1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void requestsWithoutValidUserAreNotLimited() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(send("POST", "/users", null).getStatus()).isEqualTo(200);
+            assertThat(send("POST", "/users", "abc").getStatus()).isEqualTo(200);
+        }
+        assertThat(limiter.size()).isZero();
+    }
+
+    @Test
+    void batchIsNotChargedAsAWhole() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(send("POST", "/batch", "1").getStatus()).isEqualTo(200);
+        }
+        assertThat(limiter.size()).isZero();
+    }
+
+    private MockHttpServletResponse send(String method, String path, String userId) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        if (userId != null) {
+            request.addHeader("X-Sharer-User-Id", userId);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static RateLimitProperties properties() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRead(new RateLimitProperties.Limit(100, 100));
+        properties.setWrite(new RateLimitProperties.Limit(0.2, 1));
+        properties.setSearch(new RateLimitProperties.Limit(0.2, 1));
+        properties.setEvictionInterval(Duration.ofDays(1));
+        return properties;
+    }
+}
@@ -0,0 +1,75 @@
+package ru.practicum.shareit.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.config.RateLimitProperties;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// время решения фильтра на горячем пути: корзина пользователя уже в памяти, запрос разрешается
+// или отклоняется. users = 1 - все потоки бьются в одну ячейку AtomicLongArray (худший случай для CAS).
+// Запуск: mvn -pl gateway test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+//         -Dexec.args="-cp %classpath org.openjdk.jmh.Main TokenBucketLimiterBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TokenBucketLimiterBenchmark {
+    @Param({"1", "50000"})
+    private int users;
+
+    private TokenBucketLimiter admitting;
+    private TokenBucketLimiter rejecting;
+
+    @Setup
+    public void setUp() {
+        admitting = new TokenBucketLimiter(properties(1e9, Integer.MAX_VALUE));
+        rejecting = new TokenBucketLimiter(properties(1e-3, 1));
+        for (long user = 0; user < users; user++) {
+            admitting.tryAcquire(user, EndpointClass.READ);
+            rejecting.tryAcquire(user, EndpointClass.READ);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        admitting.close();
+        rejecting.close();
+    }
+
+    @Benchmark
+    public Duration admitted() {
+        return admitting.tryAcquire(ThreadLocalRandom.current().nextInt(users), EndpointClass.READ);
+    }
+
+    @Benchmark
+    public Duration rejected() {
+        return rejecting.tryAcquire(ThreadLocalRandom.current().nextInt(users), EndpointClass.READ);
+    }
+
+    private static RateLimitProperties properties(double permitsPerSecond, int burst) {
+        RateLimitProperties properties = new RateLimitProperties();
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit(permitsPerSecond, burst);
+        properties.setRead(limit);
+        properties.setWrite(limit);
+        properties.setSearch(limit);
+        properties.setEvictionInterval(Duration.ofHours(1));
+        return properties;
+    }
+}
@@ -0,0 +1,144 @@
+package ru.practicum.shareit.ratelimit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.config.RateLimitProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// время подменяется: пополнение корзин проверяется без sleep
+class TokenBucketLimiterTest {
+    private static final long USER = 1L;
+    private static final int THREADS = 16;
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+    private final TokenBucketLimiter limiter = new TokenBucketLimiter(properties(), clock::get);
+
+    @AfterEach
+    void tearDown() {
+        limiter.close();
+    }
+
+    @Test
+    void burstIsAdmittedAtOnceThenRejected() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(USER, EndpointClass.WRITE)).isZero();
+        }
+
+        assertThat(limiter.tryAcquire(USER, EndpointClass.WRITE)).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void bucketRefillsAtConfiguredRate() {
+        exhaust(EndpointClass.WRITE);
+
+        advance(Duration.ofMillis(400));
+        assertThat(limiter.tryAcquire(USER, EndpointClass.WRITE)).isEqualTo(Duration.ofMillis(600));
+
+        advance(Duration.ofMillis(600));
+        assertThat(limiter.tryAcquire(USER, EndpointClass.WRITE)).isZero();
+        assertThat(limiter.tryAcquire(USER, EndpointClass.WRITE)).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void idleTimeDoesNotGrowBurstBeyondCapacity() {
+        advance(Duration.ofHours(1));
+
+        exhaust(EndpointClass.WRITE);
+        assertThat(limiter.tryAcquire(USER, EndpointClass.WRITE)).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void endpointClassesAndUsersHaveSeparateBuckets() {
+        exhaust(EndpointClass.WRITE);
+
+        assertThat(limiter.tryAcquire(USER, EndpointClass.READ)).isZero();
+        assertThat(limiter.tryAcquire(USER, EndpointClass.SEARCH)).isZero();
+        assertThat(limiter.tryAcquire(USER + 1, EndpointClass.WRITE)).isZero();
+        assertThat(limiter.size()).isEqualTo(2);
+    }
+
+    @Test
+    void bucketsAreEvictedOnlyWhenFull() {
+        limiter.tryAcquire(USER, EndpointClass.WRITE);
+        limiter.tryAcquire(USER + 1, EndpointClass.READ);
+
+        limiter.evictIdle();
+        assertThat(limiter.size()).isEqualTo(2);
+
+        // корзина чтения пополняется за 100 мс, записи - за 1 с
+        advance(Duration.ofMillis(100));
+        limiter.evictIdle();
+        assertThat(limiter.size()).isEqualTo(1);
+
+        advance(Duration.ofMillis(900));
+        limiter.evictIdle();
+        assertThat(limiter.size()).isZero();
+    }
+
+    @Test
+    void evictedBucketStartsFull() {
+        exhaust(EndpointClass.WRITE);
+        advance(Duration.ofSeconds(3));
+        limiter.evictIdle();
+
+        exhaust(EndpointClass.WRITE);
+        assertThat(limiter.tryAcquire(USER, EndpointClass.WRITE)).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void concurrentAcquiresNeverAdmitMoreThanBurst() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int attempt = 0; attempt < 100; attempt++) {
+                    if (limiter.tryAcquire(USER, EndpointClass.READ).isZero()) {
+                        admitted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdownNow();
+
+        assertThat(admitted).hasValue(20);
+    }
+
+    private void exhaust(EndpointClass endpointClass) {
+        while (limiter.tryAcquire(USER, endpointClass).isZero()) {
+            // корзина опустошается без продвижения часов
+        }
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+
+    private static RateLimitProperties properties() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRead(new RateLimitProperties.Limit(10, 20));
+        properties.setWrite(new RateLimitProperties.Limit(1, 3));
+        properties.setSearch(new RateLimitProperties.Limit(2, 2));
+        properties.setEvictionInterval(Duration.ofDays(1));
+        return properties;
+    }
+}
@@ -2,12 +2,28 @@ package ru.practicum.shareit.booking;
 
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.service.BookingService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.shareit.booking.dto.BookingDtoRequest;
+import ru.practicum.shareit.util.BatchResultDto;
+import ru.practicum.shareit.util.PageCursor;
+import ru.practicum.shareit.util.Tagged;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping(path = "/bookings")
@@ -15,6 +31,7 @@ import java.util.List;
 @Slf4j
 public class BookingController {
     private final BookingService bookingService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public BookingDto saveNewBooking(@RequestHeader("X-Sharer-User-Id") long userId,
@@ -22,6 +39,12 @@ public class BookingController {
         return bookingService.saveBooking(userId, bookingDto);
     }
 
+    @PostMapping("batch")
+    public List<BatchResultDto<BookingDto>> saveNewBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                            @RequestBody List<BookingDtoRequest> bookingDtos) {
+        return bookingService.saveBookings(userId, bookingDtos);
+    }
+
     @PatchMapping("{bookingId}")
     public BookingDto approveBooking(@RequestHeader("X-Sharer-User-Id") long userId,
                                      @PathVariable long bookingId,
@@ -29,25 +52,81 @@ public class BookingController {
         return bookingService.approveBooking(userId, bookingId, approved);
     }
 
+    @PatchMapping("batch")
+    public List<BatchResultDto<BookingDto>> approveBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                            @RequestParam boolean approved,
+                                                            @RequestBody List<Long> bookingIds) {
+        return bookingService.approveBookings(userId, bookingIds, approved);
+    }
+
     @GetMapping("{bookingId}")
     public BookingDto getBooking(@RequestHeader("X-Sharer-User-Id") long userId,
-                                 @PathVariable long bookingId) {
-        return bookingService.getBooking(userId, bookingId);
+                                 @PathVariable long bookingId,
+                                 WebRequest request) {
+        Tagged<BookingDto> booking = bookingService.getBooking(userId, bookingId, request.getHeader(HttpHeaders.IF_NONE_MATCH));
+        if (booking.getEtag() != null && request.checkNotModified(booking.getEtag())) {
+            return null;
+        }
+        return booking.getBody();
     }
 
     @GetMapping
-    public List<BookingDto> getBookings(@RequestHeader("X-Sharer-User-Id") long userId,
-                                        @RequestParam(defaultValue = "all") String state,
-                                        @RequestParam(defaultValue = "0") int from,
-                                        @RequestParam(defaultValue = "10") int size) {
-        return bookingService.getBookerBookings(userId, state, from, size);
+    public ResponseEntity<List<BookingDto>> getBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                        @RequestParam(defaultValue = "all") String state,
+                                                        @RequestParam(defaultValue = "0") int from,
+                                                        @RequestParam(defaultValue = "10") int size,
+                                                        @RequestParam(required = false) String after) {
+        List<BookingDto> bookings = after == null
+                ? bookingService.getBookerBookings(userId, state, from, size)
+                : bookingService.getBookerBookings(userId, state, PageCursor.decode(after), size);
+        return PageCursor.withNextCursor(bookings, size, BookingController::toCursor);
     }
 
     @GetMapping("owner")
-    public List<BookingDto> getBookingsByOwner(@RequestHeader("X-Sharer-User-Id") long userId,
-                                               @RequestParam(defaultValue = "all") String state,
-                                               @RequestParam(defaultValue = "0") int from,
-                                               @RequestParam(defaultValue = "10") int size) {
-        return bookingService.getOwnerBookings(userId, state, from, size);
+    public ResponseEntity<List<BookingDto>> getBookingsByOwner(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                               @RequestParam(defaultValue = "all") String state,
+                                                               @RequestParam(defaultValue = "0") int from,
+                                                               @RequestParam(defaultValue = "10") int size,
+                                                               @RequestParam(required = false) String after) {
+        List<BookingDto> bookings = after == null
+                ? bookingService.getOwnerBookings(userId, state, from, size)
+                : bookingService.getOwnerBookings(userId, state, PageCursor.decode(after), size);
+        return PageCursor.withNextCursor(bookings, size, BookingController::toCursor);
+    }
+
+    @GetMapping("export")
+    public void exportBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+                               HttpServletResponse response) throws IOException {
+        export(response, consumer -> bookingService.exportBookerBookings(userId, consumer));
+    }
+
+    @GetMapping("owner/export")
+    public void exportBookingsByOwner(@RequestHeader("X-Sharer-User-Id") long userId,
+                                      HttpServletResponse response) throws IOException {
+        export(response, consumer -> bookingService.exportOwnerBookings(userId, consumer));
+    }
+
+    private void export(HttpServletResponse response,
+                        Consumer<Consumer<BookingDto>> exporter) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        ObjectWriter writer = objectMapper.writerFor(BookingDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            // по одной записи на строку, без разделителя корневых значений Jackson
+            generator.setRootValueSeparator(null);
+            exporter.accept(booking -> {
+                try {
+                    writer.writeValue(generator, booking);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static PageCursor toCursor(BookingDto booking) {
+        return PageCursor.of(booking.getStart(), booking.getId());
     }
 }
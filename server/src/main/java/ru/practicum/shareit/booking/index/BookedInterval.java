@@ -0,0 +1,22 @@
+package ru.practicum.shareit.booking.index;
+
+import lombok.Value;
+import ru.practicum.shareit.booking.Booking;
+
+import java.time.LocalDateTime;
+
+@Value
+public class BookedInterval {
+    Long bookingId;
+    Long itemId;
+    LocalDateTime start;
+    LocalDateTime end;
+
+    public static BookedInterval of(Booking booking) {
+        return new BookedInterval(booking.getId(), booking.getItem().getId(), booking.getStart(), booking.getEnd());
+    }
+
+    public boolean overlaps(LocalDateTime otherStart, LocalDateTime otherEnd) {
+        return start.isBefore(otherEnd) && end.isAfter(otherStart);
+    }
+}
@@ -0,0 +1,242 @@
+package ru.practicum.shareit.booking.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.exception.ValidationException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookingIntervalIndex {
+    public static final List<Status> ACTIVE_STATUSES = List.of(Status.WAITING, Status.APPROVED);
+
+    private static final Comparator<BookedInterval> BY_START = Comparator
+            .comparing(BookedInterval::getStart)
+            .thenComparing(BookedInterval::getBookingId);
+
+    private final BookingRepository bookingRepository;
+    private final Map<Long, ItemSchedule> schedules = new ConcurrentHashMap<>();
+    private final Set<Long> changedDuringWarmUp = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        List<BookedInterval> stored = bookingRepository.findIntervalsByStatusIn(ACTIVE_STATUSES);
+        for (BookedInterval interval : stored) {
+            ItemSchedule schedule = scheduleOf(interval.getItemId());
+            schedule.lock.lock();
+            try {
+                // бронирования, изменённые во время загрузки, новее снимка из БД
+                if (!changedDuringWarmUp.contains(interval.getBookingId())) {
+                    schedule.add(interval);
+                }
+            } finally {
+                schedule.lock.unlock();
+            }
+        }
+        ready = true;
+        changedDuringWarmUp.clear();
+        log.info("Booking interval index built: items={}, bookings={}", schedules.size(), stored.size());
+    }
+
+    public static boolean isActive(Status status) {
+        return ACTIVE_STATUSES.contains(status);
+    }
+
+    public Booking reserve(Booking booking, UnaryOperator<Booking> save) {
+        long itemId = booking.getItem().getId();
+        ItemSchedule schedule = scheduleOf(itemId);
+        schedule.lock.lock();
+        try {
+            checkFree(schedule, itemId, booking.getStart(), booking.getEnd(), booking.getId());
+            Booking saved = save.apply(booking);
+            BookedInterval interval = BookedInterval.of(saved);
+            schedule.add(interval);
+            trackChange(interval);
+            onRollback(() -> remove(interval));
+            return saved;
+        } finally {
+            schedule.lock.unlock();
+        }
+    }
+
+    public void reserve(BookedInterval interval) {
+        ItemSchedule schedule = scheduleOf(interval.getItemId());
+        schedule.lock.lock();
+        try {
+            checkFree(
+                    schedule,
+                    interval.getItemId(),
+                    interval.getStart(),
+                    interval.getEnd(),
+                    interval.getBookingId()
+            );
+            schedule.add(interval);
+            trackChange(interval);
+            onRollback(() -> remove(interval));
+        } finally {
+            schedule.lock.unlock();
+        }
+    }
+
+    public void release(Booking booking) {
+        release(BookedInterval.of(booking));
+    }
+
+    public void release(BookedInterval interval) {
+        remove(interval);
+        trackChange(interval);
+        onRollback(() -> add(interval));
+    }
+
+    public List<BookedInterval> findOverlapping(long itemId, LocalDateTime from, LocalDateTime to) {
+        if (!ready) {
+            return bookingRepository.findIntervalsByItemIdAndStatusIn(itemId, ACTIVE_STATUSES, to, from);
+        }
+        ItemSchedule schedule = schedules.get(itemId);
+        if (schedule == null) {
+            return Collections.emptyList();
+        }
+        schedule.lock.lock();
+        try {
+            return schedule.overlapping(from, to, null)
+                    .collect(Collectors.toList());
+        } finally {
+            schedule.lock.unlock();
+        }
+    }
+
+    private void checkFree(ItemSchedule schedule, long itemId, LocalDateTime start, LocalDateTime end,
+                           Long bookingId) {
+        if (overlaps(schedule, itemId, start, end, bookingId)) {
+            throw new ValidationException(
+                    String.format("Вещь с ID %d уже забронирована на указанное время", itemId)
+            );
+        }
+    }
+
+    private boolean overlaps(ItemSchedule schedule, long itemId, LocalDateTime start, LocalDateTime end,
+                             Long bookingId) {
+        if (schedule.findOverlapping(start, end, bookingId).isPresent()) {
+            return true;
+        }
+        return !ready && bookingRepository.existsByItemIdAndStatusInAndStartBeforeAndEndAfterAndIdNot(
+                itemId,
+                ACTIVE_STATUSES,
+                end,
+                start,
+                bookingId == null ? -1L : bookingId
+        );
+    }
+
+    private void add(BookedInterval interval) {
+        ItemSchedule schedule = scheduleOf(interval.getItemId());
+        schedule.lock.lock();
+        try {
+            schedule.add(interval);
+        } finally {
+            schedule.lock.unlock();
+        }
+    }
+
+    private void remove(BookedInterval interval) {
+        ItemSchedule schedule = scheduleOf(interval.getItemId());
+        schedule.lock.lock();
+        try {
+            schedule.remove(interval.getBookingId());
+        } finally {
+            schedule.lock.unlock();
+        }
+    }
+
+    private void trackChange(BookedInterval interval) {
+        if (!ready) {
+            changedDuringWarmUp.add(interval.getBookingId());
+        }
+    }
+
+    private ItemSchedule scheduleOf(long itemId) {
+        return schedules.computeIfAbsent(itemId, id -> new ItemSchedule());
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static class ItemSchedule {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final NavigableSet<BookedInterval> intervals = new TreeSet<>(BY_START);
+        private final Map<Long, BookedInterval> byBooking = new HashMap<>();
+        // интервал, начавшийся раньше start - longest, не может пересечься с [start, end)
+        private Duration longest = Duration.ZERO;
+
+        private void add(BookedInterval interval) {
+            remove(interval.getBookingId());
+            intervals.add(interval);
+            byBooking.put(interval.getBookingId(), interval);
+            Duration duration = durationOf(interval);
+            if (duration.compareTo(longest) > 0) {
+                longest = duration;
+            }
+        }
+
+        private void remove(Long bookingId) {
+            BookedInterval previous = byBooking.remove(bookingId);
+            if (previous == null) {
+                return;
+            }
+            intervals.remove(previous);
+            // иначе после отмены одной длинной брони каждый поиск просматривал бы лишние интервалы;
+            // пересчёт нужен только когда удалён самый длинный
+            if (durationOf(previous).equals(longest)) {
+                longest = byBooking.values().stream()
+                        .map(ItemSchedule::durationOf)
+                        .max(Comparator.naturalOrder())
+                        .orElse(Duration.ZERO);
+            }
+        }
+
+        private static Duration durationOf(BookedInterval interval) {
+            return Duration.between(interval.getStart(), interval.getEnd());
+        }
+
+        private Optional<BookedInterval> findOverlapping(LocalDateTime start, LocalDateTime end, Long excludedId) {
+            return overlapping(start, end, excludedId).findFirst();
+        }
+
+        private Stream<BookedInterval> overlapping(LocalDateTime start, LocalDateTime end, Long excludedId) {
+            BookedInterval from = new BookedInterval(Long.MIN_VALUE, null, start.minus(longest), null);
+            BookedInterval to = new BookedInterval(Long.MIN_VALUE, null, end, null);
+            return intervals.subSet(from, false, to, false).stream()
+                    .filter(interval -> !interval.getBookingId().equals(excludedId))
+                    .filter(interval -> interval.overlaps(start, end));
+        }
+    }
+}
@@ -7,6 +7,7 @@ import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoRequest;
 import ru.practicum.shareit.booking.dto.BookingDtoShort;
+import ru.practicum.shareit.booking.dto.BookingView;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
@@ -40,6 +41,23 @@ public class BookingMapper {
                 .build();
     }
 
+    public BookingDto toDto(BookingView view) {
+        return BookingDto.builder()
+                .id(view.getId())
+                .start(view.getStartDate())
+                .end(view.getEndDate())
+                .item(ItemDto.builder()
+                        .id(view.getItemId())
+                        .name(view.getItemName())
+                        .description(view.getItemDescription())
+                        .available(view.getItemAvailable())
+                        .requestId(view.getItemRequestId())
+                        .build())
+                .booker(new UserDto(view.getBookerId(), view.getBookerName(), view.getBookerEmail()))
+                .status(view.getStatus())
+                .build();
+    }
+
     public BookingDtoShort toDtoShort(Booking booking) {
         return BookingDtoShort.builder()
                 .id(booking.getId())
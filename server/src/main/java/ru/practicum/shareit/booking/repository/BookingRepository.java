@@ -1,57 +1,154 @@
 package ru.practicum.shareit.booking.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingVersionView;
+import ru.practicum.shareit.booking.dto.BookingView;
+import ru.practicum.shareit.booking.index.BookedInterval;
+
+import javax.persistence.QueryHint;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface BookingRepository extends JpaRepository<Booking, Long> {
-    List<Booking> findByBookerId(Long bookerId, Pageable pageable);
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
-    @Query("from Booking as b " +
-            "where b.booker.id = :bookerId " +
-            "and b.start <= now() and b.end >= now()")
-    List<Booking> findCurrentBookings(Long bookerId, Pageable pageable);
+public interface BookingRepository extends JpaRepository<Booking, Long>, BookingRepositoryCustom {
+    String SELECT_VIEW = "select b.id as id, b.start as startDate, b.end as endDate, b.status as status, " +
+            "i.id as itemId, i.name as itemName, i.description as itemDescription, " +
+            "i.available as itemAvailable, i.owner.id as itemOwnerId, r.id as itemRequestId, " +
+            "u.id as bookerId, u.name as bookerName, u.email as bookerEmail " +
+            "from Booking as b " +
+            "join b.item as i " +
+            "left join i.request as r " +
+            "join b.booker as u ";
+    // начало бронирования хранится с точностью до секунды: при равном начале порядок - по созданию
+    String ORDER_VIEW = "order by b.start desc, b.id";
+    String EXPORT_FETCH_SIZE = "500";
 
-    @Query("from Booking as b " +
-            "where b.booker.id = :bookerId " +
-            "and b.start < now() and b.end <= now()")
-    List<Booking> findPastBookings(Long bookerId, Pageable pageable);
+    @Query(SELECT_VIEW +
+            "where u.id = :bookerId " +
+            ORDER_VIEW)
+    List<BookingView> findViewsByBookerId(Long bookerId, Pageable pageable);
 
-    @Query("from Booking as b " +
-            "where b.booker.id = :bookerId " +
-            "and b.start > now() and b.end > now()")
-    List<Booking> findFutureBookings(Long bookerId, Pageable pageable);
+    @Query(SELECT_VIEW +
+            "where u.id = :bookerId " +
+            "and b.start <= now() and b.end >= now() " +
+            ORDER_VIEW)
+    List<BookingView> findCurrentBookings(Long bookerId, Pageable pageable);
 
-    List<Booking> findByBookerIdAndStatus(Long bookerId, Status status, Pageable pageable);
+    @Query(SELECT_VIEW +
+            "where u.id = :bookerId " +
+            "and b.start < now() and b.end <= now() " +
+            ORDER_VIEW)
+    List<BookingView> findPastBookings(Long bookerId, Pageable pageable);
 
-    List<Booking> findByItemOwnerId(Long ownerId, Pageable pageable);
+    @Query(SELECT_VIEW +
+            "where u.id = :bookerId " +
+            "and b.start > now() and b.end > now() " +
+            ORDER_VIEW)
+    List<BookingView> findFutureBookings(Long bookerId, Pageable pageable);
 
-    @Query("from Booking as b " +
-            "where b.item.owner.id = :ownerId " +
-            "and b.start <= now() and b.end >= now()")
-    List<Booking> findOwnerCurrentBookings(Long ownerId, Pageable pageable);
+    @Query(SELECT_VIEW +
+            "where u.id = :bookerId " +
+            "and b.status = :status " +
+            ORDER_VIEW)
+    List<BookingView> findViewsByBookerIdAndStatus(Long bookerId, Status status, Pageable pageable);
 
-    @Query("from Booking as b " +
-            "where b.item.owner.id = :ownerId " +
-            "and b.start < now() and b.end <= now()")
-    List<Booking> findOwnerPastBookings(Long ownerId, Pageable pageable);
+    @Query(SELECT_VIEW +
+            "where i.owner.id = :ownerId " +
+            ORDER_VIEW)
+    List<BookingView> findViewsByItemOwnerId(Long ownerId, Pageable pageable);
 
-    @Query("from Booking as b " +
-            "where b.item.owner.id = :ownerId " +
-            "and b.start > now() and b.end > now()")
-    List<Booking> findOwnerFutureBookings(Long ownerId, Pageable pageable);
+    @Query(SELECT_VIEW +
+            "where i.owner.id = :ownerId " +
+            "and b.start <= now() and b.end >= now() " +
+            ORDER_VIEW)
+    List<BookingView> findOwnerCurrentBookings(Long ownerId, Pageable pageable);
+
+    @Query(SELECT_VIEW +
+            "where i.owner.id = :ownerId " +
+            "and b.start < now() and b.end <= now() " +
+            ORDER_VIEW)
+    List<BookingView> findOwnerPastBookings(Long ownerId, Pageable pageable);
+
+    @Query(SELECT_VIEW +
+            "where i.owner.id = :ownerId " +
+            "and b.start > now() and b.end > now() " +
+            ORDER_VIEW)
+    List<BookingView> findOwnerFutureBookings(Long ownerId, Pageable pageable);
 
-    List<Booking> findByItemOwnerIdAndStatus(Long ownerId, Status status, Pageable pageable);
+    @Query(SELECT_VIEW +
+            "where i.owner.id = :ownerId " +
+            "and b.status = :status " +
+            ORDER_VIEW)
+    List<BookingView> findViewsByItemOwnerIdAndStatus(Long ownerId, Status status, Pageable pageable);
 
-    Booking findFirstByItemIdAndStartBeforeOrderByStartDesc(Long itemId, LocalDateTime start);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(SELECT_VIEW +
+            "where u.id = :bookerId " +
+            ORDER_VIEW)
+    Stream<BookingView> streamViewsByBookerId(Long bookerId);
 
-    Booking findFirstByItemIdAndStartAfterAndStatusOrderByStartAsc(Long itemId, LocalDateTime start, Status status);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(SELECT_VIEW +
+            "where i.owner.id = :ownerId " +
+            ORDER_VIEW)
+    Stream<BookingView> streamViewsByItemOwnerId(Long ownerId);
+
+    @Query(SELECT_VIEW +
+            "where b.id in :ids")
+    List<BookingView> findViewsByIdIn(Collection<Long> ids);
+
+    @Modifying
+    @Query("update Booking as b set b.status = :status, b.version = b.version + 1 where b.id in :ids")
+    int updateStatus(Collection<Long> ids, Status status);
+
+    @Query("select b.version as version, i.version as itemVersion, u.version as bookerVersion, " +
+            "u.id as bookerId, i.owner.id as itemOwnerId " +
+            "from Booking as b " +
+            "join b.item as i " +
+            "join b.booker as u " +
+            "where b.id = :id")
+    Optional<BookingVersionView> findVersionById(Long id);
+
+    @EntityGraph("Booking.detail")
+    Optional<Booking> findDetailedById(Long id);
+
+    @Query("from Booking as b " +
+            "where b.item.id in :itemIds " +
+            "and (b.start = (select max(l.start) from Booking as l " +
+            "where l.item.id = b.item.id and l.start < :now) " +
+            "or (b.status = :status and b.start = (select min(n.start) from Booking as n " +
+            "where n.item.id = b.item.id and n.start > :now and n.status = :status)))")
+    List<Booking> findLastAndNextBookings(Collection<Long> itemIds, LocalDateTime now, Status status);
 
     Optional<Booking> findFirstByItemIdAndBookerIdAndEndBefore(Long itemId, Long bookerId, LocalDateTime end);
+
+    @Query("select new ru.practicum.shareit.booking.index.BookedInterval(b.id, b.item.id, b.start, b.end) " +
+            "from Booking as b " +
+            "where b.status in :statuses")
+    List<BookedInterval> findIntervalsByStatusIn(Collection<Status> statuses);
+
+    @Query("select new ru.practicum.shareit.booking.index.BookedInterval(b.id, b.item.id, b.start, b.end) " +
+            "from Booking as b " +
+            "where b.item.id = :itemId " +
+            "and b.status in :statuses " +
+            "and b.start < :end and b.end > :start " +
+            "order by b.start, b.id")
+    List<BookedInterval> findIntervalsByItemIdAndStatusIn(Long itemId, Collection<Status> statuses,
+                                                          LocalDateTime end, LocalDateTime start);
+
+    boolean existsByItemIdAndStatusInAndStartBeforeAndEndAfterAndIdNot(Long itemId, Collection<Status> statuses,
+                                                                       LocalDateTime end, LocalDateTime start,
+                                                                       Long id);
 }
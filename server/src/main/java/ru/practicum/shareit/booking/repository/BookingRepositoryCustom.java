@@ -0,0 +1,13 @@
+package ru.practicum.shareit.booking.repository;
+
+import ru.practicum.shareit.booking.State;
+import ru.practicum.shareit.booking.dto.BookingView;
+import ru.practicum.shareit.util.PageCursor;
+
+import java.util.List;
+
+public interface BookingRepositoryCustom {
+    List<BookingView> findBookerBookingsAfter(long bookerId, State state, PageCursor after, int size);
+
+    List<BookingView> findOwnerBookingsAfter(long ownerId, State state, PageCursor after, int size);
+}
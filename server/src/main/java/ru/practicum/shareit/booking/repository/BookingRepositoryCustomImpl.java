@@ -0,0 +1,82 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import ru.practicum.shareit.booking.State;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingView;
+import ru.practicum.shareit.util.PageCursor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import javax.persistence.TypedQuery;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class BookingRepositoryCustomImpl implements BookingRepositoryCustom {
+    private static final String BOOKER_CONDITION = "where u.id = :userId ";
+    private static final String OWNER_CONDITION = "where i.owner.id = :userId ";
+    private static final String SEEK_CONDITION = "and (b.start < :start or (b.start = :start and b.id > :id)) ";
+
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<BookingView> findBookerBookingsAfter(long bookerId, State state, PageCursor after, int size) {
+        return findAfter(BOOKER_CONDITION, bookerId, state, after, size);
+    }
+
+    @Override
+    public List<BookingView> findOwnerBookingsAfter(long ownerId, State state, PageCursor after, int size) {
+        return findAfter(OWNER_CONDITION, ownerId, state, after, size);
+    }
+
+    private List<BookingView> findAfter(String userCondition, long userId, State state, PageCursor after, int size) {
+        String jpql = BookingRepository.SELECT_VIEW +
+                userCondition +
+                stateCondition(state) +
+                SEEK_CONDITION +
+                BookingRepository.ORDER_VIEW;
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql, Tuple.class)
+                .setParameter("userId", userId)
+                .setParameter("start", after.getTimestampOrThrow())
+                .setParameter("id", after.getId())
+                .setMaxResults(size);
+        if (state == State.WAITING || state == State.REJECTED) {
+            query.setParameter("status", Status.valueOf(state.name()));
+        }
+        return query.getResultList().stream()
+                .map(this::toView)
+                .collect(Collectors.toList());
+    }
+
+    private BookingView toView(Tuple tuple) {
+        Map<String, Object> values = new HashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) {
+            values.put(element.getAlias(), tuple.get(element));
+        }
+        return projectionFactory.createProjection(BookingView.class, values);
+    }
+
+    private static String stateCondition(State state) {
+        switch (state) {
+            case CURRENT:
+                return "and b.start <= now() and b.end >= now() ";
+            case PAST:
+                return "and b.start < now() and b.end <= now() ";
+            case FUTURE:
+                return "and b.start > now() and b.end > now() ";
+            case WAITING:
+            case REJECTED:
+                return "and b.status = :status ";
+            default:
+                return "";
+        }
+    }
+}
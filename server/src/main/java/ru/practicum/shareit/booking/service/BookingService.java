@@ -2,17 +2,33 @@ package ru.practicum.shareit.booking.service;
 
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoRequest;
+import ru.practicum.shareit.util.BatchResultDto;
+import ru.practicum.shareit.util.PageCursor;
+import ru.practicum.shareit.util.Tagged;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface BookingService {
     BookingDto saveBooking(long userId, BookingDtoRequest bookingDto);
 
+    List<BatchResultDto<BookingDto>> saveBookings(long userId, List<BookingDtoRequest> bookingDtos);
+
     BookingDto approveBooking(long userId, long bookingId, boolean approved);
 
-    BookingDto getBooking(long userId, long bookingId);
+    List<BatchResultDto<BookingDto>> approveBookings(long userId, List<Long> bookingIds, boolean approved);
+
+    Tagged<BookingDto> getBooking(long userId, long bookingId, String ifNoneMatch);
 
     List<BookingDto> getBookerBookings(long userId, String state, int from, int size);
 
+    List<BookingDto> getBookerBookings(long userId, String state, PageCursor after, int size);
+
     List<BookingDto> getOwnerBookings(long userId, String state, int from, int size);
+
+    List<BookingDto> getOwnerBookings(long userId, String state, PageCursor after, int size);
+
+    void exportBookerBookings(long userId, Consumer<BookingDto> consumer);
+
+    void exportOwnerBookings(long userId, Consumer<BookingDto> consumer);
 }
@@ -2,7 +2,6 @@ package ru.practicum.shareit.booking.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.Booking;
@@ -10,6 +9,9 @@ import ru.practicum.shareit.booking.State;
 import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoRequest;
+import ru.practicum.shareit.booking.dto.BookingView;
+import ru.practicum.shareit.booking.index.BookedInterval;
+import ru.practicum.shareit.booking.index.BookingIntervalIndex;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.exception.NotFoundException;
@@ -18,11 +20,24 @@ import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.util.BatchResultDto;
+import ru.practicum.shareit.util.EntityTag;
+import ru.practicum.shareit.util.PageCursor;
+import ru.practicum.shareit.util.Tagged;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -32,6 +47,7 @@ public class BookingServiceImpl implements BookingService {
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
     private final BookingMapper bookingMapper;
+    private final BookingIntervalIndex intervalIndex;
 
     @Override
     @Transactional
@@ -41,19 +57,37 @@ public class BookingServiceImpl implements BookingService {
                 () -> new NotFoundException(
                         String.format("Вещь с ID %d не найдена", bookingDto.getItemId()))
         );
-        if (!item.getAvailable()) {
-            throw new ValidationException(
-                    String.format("Вещь с ID %d недоступна для аренды", item.getId())
-            );
-        }
-        if (!bookingDto.getStart().isBefore(bookingDto.getEnd())) {
-            throw new ValidationException("Время бронирования указано некорректно");
-        }
-        Booking booking = bookingMapper.toNewEntity(bookingDto, item, user);
-        if (userId == booking.getItem().getOwner().getId()) {
-            throw new NotFoundException("Вещь недоступна для бронирования владельцем");
+        return bookingMapper.toDto(createBooking(user, item, bookingDto));
+    }
+
+    @Override
+    @Transactional
+    public List<BatchResultDto<BookingDto>> saveBookings(long userId, List<BookingDtoRequest> bookingDtos) {
+        User user = findUserOrThrowException(userId);
+        Set<Long> itemIds = bookingDtos.stream()
+                .map(BookingDtoRequest::getItemId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Item> items = itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        LocalDateTime now = LocalDateTime.now();
+        List<BatchResultDto<BookingDto>> results = new ArrayList<>(bookingDtos.size());
+        for (int i = 0; i < bookingDtos.size(); i++) {
+            BookingDtoRequest bookingDto = bookingDtos.get(i);
+            try {
+                validate(bookingDto, now);
+                Item item = items.get(bookingDto.getItemId());
+                if (item == null) {
+                    throw new NotFoundException(
+                            String.format("Вещь с ID %d не найдена", bookingDto.getItemId())
+                    );
+                }
+                results.add(BatchResultDto.success(i, bookingMapper.toDto(createBooking(user, item, bookingDto))));
+            } catch (ValidationException | NotFoundException e) {
+                results.add(BatchResultDto.failure(i, e.getMessage()));
+            }
         }
-        return bookingMapper.toDto(bookingRepository.save(booking));
+        return results;
     }
 
     @Override
@@ -70,17 +104,101 @@ public class BookingServiceImpl implements BookingService {
                     String.format("Бронирование с ID %d уже подтверждено", bookingId)
             );
         }
+        boolean wasActive = BookingIntervalIndex.isActive(booking.getStatus());
         booking.setStatus(approved ? Status.APPROVED : Status.REJECTED);
-        bookingRepository.save(booking);
+        if (approved && !wasActive) {
+            intervalIndex.reserve(booking, bookingRepository::save);
+        } else {
+            bookingRepository.save(booking);
+            if (!approved && wasActive) {
+                intervalIndex.release(booking);
+            }
+        }
         return bookingMapper.toDto(booking);
     }
 
     @Override
-    public BookingDto getBooking(long userId, long bookingId) {
+    @Transactional
+    public List<BatchResultDto<BookingDto>> approveBookings(long userId, List<Long> bookingIds, boolean approved) {
+        if (bookingIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, BookingView> found = bookingRepository.findViewsByIdIn(bookingIds).stream()
+                .collect(Collectors.toMap(BookingView::getId, Function.identity()));
+        Status status = approved ? Status.APPROVED : Status.REJECTED;
+        Set<Long> processed = new HashSet<>();
+        List<Long> changed = new ArrayList<>();
+        List<BookedInterval> released = new ArrayList<>();
+        List<BatchResultDto<BookingDto>> results = new ArrayList<>(bookingIds.size());
+        for (int i = 0; i < bookingIds.size(); i++) {
+            Long bookingId = bookingIds.get(i);
+            try {
+                if (!processed.add(bookingId)) {
+                    throw new ValidationException(
+                            String.format("Бронирование с ID %d указано повторно", bookingId)
+                    );
+                }
+                BookingView booking = found.get(bookingId);
+                if (booking == null) {
+                    throw new NotFoundException(
+                            String.format("Бронирование с ID %d не найдено", bookingId)
+                    );
+                }
+                if (userId != booking.getItemOwnerId()) {
+                    throw new NotFoundException(
+                            "Изменять статус бронирования может только владелец вещи"
+                    );
+                }
+                if (booking.getStatus().equals(Status.APPROVED)) {
+                    throw new ValidationException(
+                            String.format("Бронирование с ID %d уже подтверждено", bookingId)
+                    );
+                }
+                boolean wasActive = BookingIntervalIndex.isActive(booking.getStatus());
+                BookedInterval interval = new BookedInterval(
+                        booking.getId(),
+                        booking.getItemId(),
+                        booking.getStartDate(),
+                        booking.getEndDate()
+                );
+                if (approved && !wasActive) {
+                    intervalIndex.reserve(interval);
+                } else if (!approved && wasActive) {
+                    released.add(interval);
+                }
+                BookingDto bookingDto = bookingMapper.toDto(booking).toBuilder()
+                        .status(status)
+                        .build();
+                changed.add(bookingId);
+                results.add(BatchResultDto.success(i, bookingDto));
+            } catch (ValidationException | NotFoundException e) {
+                results.add(BatchResultDto.failure(i, e.getMessage()));
+            }
+        }
+        if (!changed.isEmpty()) {
+            bookingRepository.updateStatus(changed, status);
+        }
+        released.forEach(intervalIndex::release);
+        return results;
+    }
+
+    @Override
+    public Tagged<BookingDto> getBooking(long userId, long bookingId, String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> etag = bookingRepository.findVersionById(bookingId)
+                    .filter(view -> view.getBookerId() == userId || view.getItemOwnerId() == userId)
+                    .map(view -> EntityTag.of(view.getVersion(), view.getItemVersion(), view.getBookerVersion()));
+            if (etag.isPresent() && EntityTag.matches(ifNoneMatch, etag.get())) {
+                return Tagged.notModified(etag.get());
+            }
+        }
         Booking booking = findBookingOrThrowException(bookingId);
         if (booking.getBooker().getId() == userId ||
                 booking.getItem().getOwner().getId() == userId) {
-            return bookingMapper.toDto(booking);
+            return Tagged.of(
+                    EntityTag.of(booking.getVersion(), booking.getItem().getVersion(), booking.getBooker().getVersion()),
+                    bookingMapper.toDto(booking)
+            );
         } else {
             throw new NotFoundException(
                     String.format("Информация о бронировании с ID %d недоступна для просмотра",
@@ -90,15 +208,14 @@ public class BookingServiceImpl implements BookingService {
     }
 
     @Override
-    @Transactional
     public List<BookingDto> getBookerBookings(long userId, String state, int from, int size) {
         findUserOrThrowException(userId);
         PageRequest pageRequest = toPageRequest(from, size);
-        List<Booking> bookings = new ArrayList<>();
+        List<BookingView> bookings = new ArrayList<>();
         State stateValue = State.valueOf(state);
         switch (stateValue) {
             case ALL:
-                bookings = bookingRepository.findByBookerId(userId, pageRequest);
+                bookings = bookingRepository.findViewsByBookerId(userId, pageRequest);
                 break;
             case CURRENT:
                 bookings = bookingRepository.findCurrentBookings(userId, pageRequest);
@@ -111,28 +228,31 @@ public class BookingServiceImpl implements BookingService {
                 break;
             case WAITING:
             case REJECTED:
-                bookings = bookingRepository.findByBookerIdAndStatus(
+                bookings = bookingRepository.findViewsByBookerIdAndStatus(
                         userId,
                         Status.valueOf(state),
                         pageRequest
                 );
                 break;
         }
-        return bookings.isEmpty() ? Collections.emptyList() : bookings.stream()
-                .map(bookingMapper::toDto)
-                .collect(Collectors.toList());
+        return toDtos(bookings);
+    }
+
+    @Override
+    public List<BookingDto> getBookerBookings(long userId, String state, PageCursor after, int size) {
+        findUserOrThrowException(userId);
+        return toDtos(bookingRepository.findBookerBookingsAfter(userId, State.valueOf(state), after, size));
     }
 
     @Override
-    @Transactional
     public List<BookingDto> getOwnerBookings(long userId, String state, int from, int size) {
         findUserOrThrowException(userId);
         PageRequest pageRequest = toPageRequest(from, size);
-        List<Booking> bookings = new ArrayList<>();
+        List<BookingView> bookings = new ArrayList<>();
         State stateValue = State.valueOf(state);
         switch (stateValue) {
             case ALL:
-                bookings = bookingRepository.findByItemOwnerId(userId, pageRequest);
+                bookings = bookingRepository.findViewsByItemOwnerId(userId, pageRequest);
                 break;
             case CURRENT:
                 bookings = bookingRepository.findOwnerCurrentBookings(userId, pageRequest);
@@ -145,25 +265,82 @@ public class BookingServiceImpl implements BookingService {
                 break;
             case WAITING:
             case REJECTED:
-                bookings = bookingRepository.findByItemOwnerIdAndStatus(
+                bookings = bookingRepository.findViewsByItemOwnerIdAndStatus(
                         userId,
                         Status.valueOf(state),
                         pageRequest
                 );
                 break;
         }
+        return toDtos(bookings);
+    }
+
+    @Override
+    public List<BookingDto> getOwnerBookings(long userId, String state, PageCursor after, int size) {
+        findUserOrThrowException(userId);
+        return toDtos(bookingRepository.findOwnerBookingsAfter(userId, State.valueOf(state), after, size));
+    }
+
+    @Override
+    public void exportBookerBookings(long userId, Consumer<BookingDto> consumer) {
+        findUserOrThrowException(userId);
+        try (Stream<BookingView> bookings = bookingRepository.streamViewsByBookerId(userId)) {
+            bookings.map(bookingMapper::toDto).forEach(consumer);
+        }
+    }
+
+    @Override
+    public void exportOwnerBookings(long userId, Consumer<BookingDto> consumer) {
+        findUserOrThrowException(userId);
+        try (Stream<BookingView> bookings = bookingRepository.streamViewsByItemOwnerId(userId)) {
+            bookings.map(bookingMapper::toDto).forEach(consumer);
+        }
+    }
+
+    private List<BookingDto> toDtos(List<BookingView> bookings) {
         return bookings.isEmpty() ? Collections.emptyList() : bookings.stream()
                 .map(bookingMapper::toDto)
                 .collect(Collectors.toList());
     }
 
     private Booking findBookingOrThrowException(long bookingId) {
-        return bookingRepository.findById(bookingId).orElseThrow(
+        return bookingRepository.findDetailedById(bookingId).orElseThrow(
                 () -> new NotFoundException(
                         String.format("Бронирование с ID %d не найдено", bookingId))
         );
     }
 
+    private Booking createBooking(User user, Item item, BookingDtoRequest bookingDto) {
+        if (!item.getAvailable()) {
+            throw new ValidationException(
+                    String.format("Вещь с ID %d недоступна для аренды", item.getId())
+            );
+        }
+        if (!bookingDto.getStart().isBefore(bookingDto.getEnd())) {
+            throw new ValidationException("Время бронирования указано некорректно");
+        }
+        Booking booking = bookingMapper.toNewEntity(bookingDto, item, user);
+        if (user.getId().equals(item.getOwner().getId())) {
+            throw new NotFoundException("Вещь недоступна для бронирования владельцем");
+        }
+        return intervalIndex.reserve(booking, bookingRepository::save);
+    }
+
+    private static void validate(BookingDtoRequest bookingDto, LocalDateTime now) {
+        if (bookingDto.getItemId() == null) {
+            throw new ValidationException("Необходимо указать вещь для бронирования");
+        }
+        if (bookingDto.getStart() == null) {
+            throw new ValidationException("Необходимо указать дату начала аренды");
+        }
+        if (bookingDto.getEnd() == null) {
+            throw new ValidationException("Необходимо указать дату окончания аренды");
+        }
+        if (bookingDto.getStart().isBefore(now)) {
+            throw new ValidationException("Дата начала аренды не может быть в прошлом");
+        }
+    }
+
     private User findUserOrThrowException(long userId) {
         return userRepository.findById(userId).orElseThrow(
                 () -> new NotFoundException(
@@ -172,6 +349,6 @@ public class BookingServiceImpl implements BookingService {
     }
 
     private PageRequest toPageRequest(int from, int size) {
-        return PageRequest.of(from / size, size, Sort.by(Sort.Direction.DESC, "start"));
+        return PageRequest.of(from / size, size);
     }
 }
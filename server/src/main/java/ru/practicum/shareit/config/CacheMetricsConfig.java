@@ -0,0 +1,30 @@
+package ru.practicum.shareit.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+
+@Configuration
+public class CacheMetricsConfig {
+    // попадания во второй уровень кэша берутся из статистики JCache, а не Hibernate: та выключена в проде,
+    // потому что стоит времени на каждом запросе. Метрики: cache.gets{cache=<сущность>, result=hit|miss}
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            CacheManager cacheManager = ((JCacheRegionFactory) entityManagerFactory
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getCache()
+                    .getRegionFactory())
+                    .getCacheManager();
+            for (String name : cacheManager.getCacheNames()) {
+                JCacheMetrics.monitor(registry, cacheManager.getCache(name));
+            }
+        };
+    }
+}
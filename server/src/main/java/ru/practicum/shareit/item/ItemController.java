@@ -2,12 +2,22 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.util.BatchResultDto;
+import ru.practicum.shareit.util.PageCursor;
+import ru.practicum.shareit.util.Tagged;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -19,16 +29,26 @@ public class ItemController {
     private final ItemService itemService;
 
     @GetMapping
-    public List<ItemDto> getItems(@RequestHeader("X-Sharer-User-Id") long userId,
-                                  @RequestParam(defaultValue = "0") int from,
-                                  @RequestParam(defaultValue = "10") int size) {
-        return itemService.getItems(userId, from, size);
+    public ResponseEntity<List<ItemDto>> getItems(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                  @RequestParam(defaultValue = "0") int from,
+                                                  @RequestParam(defaultValue = "10") int size,
+                                                  @RequestParam(required = false) String after) {
+        List<ItemDto> items = after == null
+                ? itemService.getItems(userId, from, size)
+                : itemService.getItems(userId, PageCursor.decode(after), size);
+        return PageCursor.withNextCursor(items, size, item -> PageCursor.of(item.getId()));
     }
 
     @GetMapping("{id}")
     public ItemDto getItem(@RequestHeader("X-Sharer-User-Id") long userId,
-                           @PathVariable long id) {
-        return itemService.getItem(userId, id);
+                           @PathVariable long id,
+                           WebRequest request) {
+        // при совпадении If-None-Match ответ 304 без загрузки и сериализации вещи
+        Tagged<ItemDto> item = itemService.getItem(userId, id, request.getHeader(HttpHeaders.IF_NONE_MATCH));
+        if (item.getEtag() != null && request.checkNotModified(item.getEtag())) {
+            return null;
+        }
+        return item.getBody();
     }
 
     @PostMapping
@@ -37,6 +57,12 @@ public class ItemController {
         return itemService.saveItem(userId, itemDto);
     }
 
+    @PostMapping("batch")
+    public List<BatchResultDto<ItemDto>> saveNewItems(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                      @RequestBody List<ItemDto> itemDtos) {
+        return itemService.saveItems(userId, itemDtos);
+    }
+
     @PatchMapping("{id}")
     public ItemDto updateItem(@RequestHeader("X-Sharer-User-Id") long userId,
                               @PathVariable long id,
@@ -45,12 +71,39 @@ public class ItemController {
         return itemService.updateItem(userId, itemDto);
     }
 
+    @PatchMapping("availability")
+    public List<BatchResultDto<ItemDto>> updateAvailability(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                            @RequestParam boolean available,
+                                                            @RequestBody List<Long> itemIds) {
+        return itemService.updateAvailability(userId, itemIds, available);
+    }
+
     @GetMapping("/search")
     public List<ItemDto> searchItems(@RequestHeader("X-Sharer-User-Id") long userId,
                                      @RequestParam String text,
                                      @RequestParam(defaultValue = "0") int from,
-                                     @RequestParam(defaultValue = "10") int size) {
-        return itemService.searchItems(userId, text, from, size);
+                                     @RequestParam(defaultValue = "10") int size,
+                                     @RequestParam(required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                     @RequestParam(required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        if (start == null && end == null) {
+            return itemService.searchItems(userId, text, from, size);
+        }
+        if (start == null || end == null) {
+            throw new ValidationException("Необходимо указать и начало, и окончание аренды");
+        }
+        return itemService.searchAvailableItems(userId, text, start, end, from, size);
+    }
+
+    @GetMapping("{id}/availability")
+    public ItemAvailabilityDto getAvailability(@RequestHeader("X-Sharer-User-Id") long userId,
+                                               @PathVariable long id,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                               LocalDateTime from,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                               LocalDateTime to) {
+        return itemService.getAvailability(userId, id, from, to);
     }
 
     @PostMapping("{itemId}/comment")
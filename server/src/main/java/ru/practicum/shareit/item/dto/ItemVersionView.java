@@ -0,0 +1,11 @@
+package ru.practicum.shareit.item.dto;
+
+public interface ItemVersionView {
+    Long getVersion();
+
+    Long getOwnerId();
+
+    Long getComments();
+
+    Long getCommentAuthorsVersion();
+}
@@ -1,10 +1,17 @@
 package ru.practicum.shareit.item.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.item.model.Comment;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findByItemId(Long itemId);
+    @EntityGraph("Comment.author")
+    @Query("from Comment as c " +
+            "where c.item.id in :itemIds " +
+            "order by c.id")
+    List<Comment> findByItemIdIn(Collection<Long> itemIds);
 }
@@ -4,18 +4,50 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.item.dto.ItemVersionView;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.IndexedItem;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
     Page<Item> findByOwnerId(Long ownerId, Pageable pageable);
 
+    List<Item> findByOwnerIdAndIdGreaterThan(Long ownerId, Long id, Pageable pageable);
+
     @Query("from Item as it " +
-            "where lower(it.name) like lower(concat('%', :text, '%')) " +
-            "or lower(it.description) like lower(concat('%', :text, '%'))" +
-            "and it.available = true")
+            "where it.available = true " +
+            "and (lower(it.name) like lower(concat('%', :text, '%')) " +
+            "or lower(it.description) like lower(concat('%', :text, '%')))")
     Page<Item> searchByQuery(String text, Pageable pageable);
 
-    List<Item> findByRequestId(Long requestId);
+    @Query("from Item as it " +
+            "where it.available = true " +
+            "and (lower(it.name) like lower(concat('%', :text, '%')) " +
+            "or lower(it.description) like lower(concat('%', :text, '%'))) " +
+            "and not exists (select b.id from Booking as b " +
+            "where b.item = it " +
+            "and b.status in :statuses " +
+            "and b.start < :end and b.end > :start)")
+    List<Item> searchAvailableByQuery(String text, LocalDateTime start, LocalDateTime end,
+                                      Collection<Status> statuses, Pageable pageable);
+
+    List<Item> findByRequestIdIn(Collection<Long> requestIds);
+
+    @Query("select new ru.practicum.shareit.item.search.IndexedItem(it.id, it.name, it.description, it.available) " +
+            "from Item as it " +
+            "where it.available = true")
+    List<IndexedItem> findAllAvailableIndexed();
+
+    @Query("select it.version as version, it.owner.id as ownerId, " +
+            "(select count(c) from Comment as c where c.item = it) as comments, " +
+            "(select coalesce(sum(a.version), 0) from Comment as c join c.author as a where c.item = it) " +
+            "as commentAuthorsVersion " +
+            "from Item as it " +
+            "where it.id = :id")
+    Optional<ItemVersionView> findVersionById(Long id);
 }
@@ -0,0 +1,31 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.Getter;
+import ru.practicum.shareit.item.model.Item;
+
+@Getter
+public class IndexedItem {
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final boolean available;
+
+    public IndexedItem(Long id, String name, String description, Boolean available) {
+        this.id = id;
+        this.name = toLowerCase(name);
+        this.description = toLowerCase(description);
+        this.available = Boolean.TRUE.equals(available);
+    }
+
+    public static IndexedItem of(Item item) {
+        return new IndexedItem(item.getId(), item.getName(), item.getDescription(), item.getAvailable());
+    }
+
+    public boolean matches(String text) {
+        return name.contains(text) || description.contains(text);
+    }
+
+    private static String toLowerCase(String value) {
+        return value == null ? "" : value.toLowerCase();
+    }
+}
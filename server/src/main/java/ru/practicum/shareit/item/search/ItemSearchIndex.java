@@ -0,0 +1,149 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ItemSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final ItemRepository itemRepository;
+    private final Map<Long, IndexedItem> items = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<IndexedItem> stored = itemRepository.findAllAvailableIndexed();
+        lock.writeLock().lock();
+        try {
+            // вещи, изменённые во время загрузки, новее снимка из БД
+            for (IndexedItem item : stored) {
+                if (!changedDuringRebuild.contains(item.getId())) {
+                    index(item);
+                }
+            }
+            changedDuringRebuild.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index built: items={}, grams={}", items.size(), postings.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // внутри транзакции индекс меняется только после её фиксации: откат или ошибка сброса
+    // не должны оставить в нём вещи, которых нет в БД
+    public void put(IndexedItem item) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(item);
+                }
+            });
+            return;
+        }
+        apply(item);
+    }
+
+    private void apply(IndexedItem item) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                changedDuringRebuild.add(item.getId());
+            }
+            index(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Long> search(String text, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return candidates(text).stream()
+                    .map(items::get)
+                    .filter(item -> item.matches(text))
+                    .map(IndexedItem::getId)
+                    .sorted()
+                    .skip(offset)
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(IndexedItem item) {
+        IndexedItem previous = item.isAvailable() ? items.put(item.getId(), item) : items.remove(item.getId());
+        if (previous != null) {
+            for (String gram : grams(previous)) {
+                Set<Long> ids = postings.get(gram);
+                ids.remove(previous.getId());
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        if (!item.isAvailable()) {
+            return;
+        }
+        for (String gram : grams(item)) {
+            postings.computeIfAbsent(gram, key -> new HashSet<>()).add(item.getId());
+        }
+    }
+
+    private Collection<Long> candidates(String text) {
+        Set<String> grams = grams(text);
+        if (grams.isEmpty()) {
+            return items.keySet();
+        }
+        List<Set<Long>> lists = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private static Set<String> grams(IndexedItem item) {
+        Set<String> grams = grams(item.getName());
+        grams.addAll(grams(item.getDescription()));
+        return grams;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+}
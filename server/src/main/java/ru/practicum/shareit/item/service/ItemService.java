@@ -1,20 +1,36 @@
 package ru.practicum.shareit.item.service;
 
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.util.BatchResultDto;
+import ru.practicum.shareit.util.PageCursor;
+import ru.practicum.shareit.util.Tagged;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemService {
     List<ItemDto> getItems(long userId, int from, int size);
 
-    ItemDto getItem(long userId, long id);
+    List<ItemDto> getItems(long userId, PageCursor after, int size);
+
+    Tagged<ItemDto> getItem(long userId, long id, String ifNoneMatch);
 
     ItemDto saveItem(long userId, ItemDto itemDto);
 
+    List<BatchResultDto<ItemDto>> saveItems(long userId, List<ItemDto> itemDtos);
+
     ItemDto updateItem(long userId, ItemDto itemDto);
 
+    List<BatchResultDto<ItemDto>> updateAvailability(long userId, List<Long> itemIds, boolean available);
+
     List<ItemDto> searchItems(long userId, String text, int from, int size);
 
+    List<ItemDto> searchAvailableItems(long userId, String text, LocalDateTime start, LocalDateTime end,
+                                       int from, int size);
+
     CommentDto saveComment(long userId, long itemId, CommentDto commentDto);
+
+    ItemAvailabilityDto getAvailability(long userId, long itemId, LocalDateTime from, LocalDateTime to);
 }
@@ -8,25 +8,42 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.index.BookedInterval;
+import ru.practicum.shareit.booking.index.BookingIntervalIndex;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.IntervalDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.IndexedItem;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
 import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.util.BatchResultDto;
+import ru.practicum.shareit.util.EntityTag;
 import ru.practicum.shareit.util.Mapper;
+import ru.practicum.shareit.util.PageCursor;
+import ru.practicum.shareit.util.Tagged;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,6 +58,8 @@ public class ItemServiceImpl implements ItemService {
     private final Mapper<Item, ItemDto> itemMapper;
     private final BookingMapper bookingMapper;
     private final Mapper<Comment, CommentDto> commentMapper;
+    private final ItemSearchIndex searchIndex;
+    private final BookingIntervalIndex intervalIndex;
 
     @Override
     public List<ItemDto> getItems(long userId, int from, int size) {
@@ -49,21 +68,42 @@ public class ItemServiceImpl implements ItemService {
                 size,
                 Sort.by(Sort.Direction.ASC, "id")
         );
-        return itemRepository.findByOwnerId(userId, pageRequest).stream()
-                .map(itemMapper::toDto)
-                .map(this::uploadBookings)
-                .map(this::uploadComments)
-                .collect(Collectors.toList());
+        return toOwnerDtos(itemRepository.findByOwnerId(userId, pageRequest).getContent());
     }
 
     @Override
-    public ItemDto getItem(long userId, long id) {
+    public List<ItemDto> getItems(long userId, PageCursor after, int size) {
+        PageRequest pageRequest = PageRequest.of(0, size, Sort.by(Sort.Direction.ASC, "id"));
+        return toOwnerDtos(itemRepository.findByOwnerIdAndIdGreaterThan(userId, after.getId(), pageRequest));
+    }
+
+    @Override
+    public Tagged<ItemDto> getItem(long userId, long id, String ifNoneMatch) {
+        // при совпадении If-None-Match вещь не загружается и не собирается
+        if (ifNoneMatch != null) {
+            Optional<String> etag = itemRepository.findVersionById(id)
+                    .filter(view -> view.getOwnerId() != userId)
+                    .map(view -> EntityTag.of(view.getVersion(), view.getComments(), view.getCommentAuthorsVersion()));
+            if (etag.isPresent() && EntityTag.matches(ifNoneMatch, etag.get())) {
+                return Tagged.notModified(etag.get());
+            }
+        }
         Item item = findItemOrThrowException(id);
         ItemDto itemDto = itemMapper.toDto(item);
+        List<Comment> comments = commentRepository.findByItemIdIn(List.of(id));
+        itemDto.setComments(comments.stream()
+                .map(commentMapper::toDto)
+                .collect(Collectors.toList()));
+        // владельцу отдаются последнее и следующее бронирования, они зависят от текущего времени
         if (item.getOwner().getId() == userId) {
-            uploadBookings(itemDto);
+            uploadBookings(List.of(itemDto));
+            return Tagged.untagged(itemDto);
         }
-        return uploadComments(itemDto);
+        // тег из загруженных данных, а не из проекции: в ответе тело и ETag одной версии
+        long commentAuthorsVersion = comments.stream()
+                .mapToLong(comment -> comment.getAuthor().getVersion())
+                .sum();
+        return Tagged.of(EntityTag.of(item.getVersion(), comments.size(), commentAuthorsVersion), itemDto);
     }
 
     @Override
@@ -81,7 +121,44 @@ public class ItemServiceImpl implements ItemService {
             );
             item.setRequest(request);
         }
-        return itemMapper.toDto(itemRepository.save(item));
+        Item saved = itemRepository.save(item);
+        searchIndex.put(IndexedItem.of(saved));
+        return itemMapper.toDto(saved);
+    }
+
+    @Override
+    @Transactional
+    public List<BatchResultDto<ItemDto>> saveItems(long userId, List<ItemDto> itemDtos) {
+        User user = findUserOrThrowException(userId);
+        Set<Long> requestIds = itemDtos.stream()
+                .map(ItemDto::getRequestId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, ItemRequest> requests = itemRequestRepository.findAllById(requestIds).stream()
+                .collect(Collectors.toMap(ItemRequest::getId, Function.identity()));
+        List<BatchResultDto<ItemDto>> results = new ArrayList<>(itemDtos.size());
+        for (int i = 0; i < itemDtos.size(); i++) {
+            ItemDto itemDto = itemDtos.get(i);
+            try {
+                validate(itemDto);
+                Item item = itemMapper.toEntity(itemDto);
+                item.setOwner(user);
+                Long requestId = itemDto.getRequestId();
+                if (requestId != null) {
+                    ItemRequest request = requests.get(requestId);
+                    if (request == null) {
+                        throw new NotFoundException(String.format("Запрос с ID %d не найден", requestId));
+                    }
+                    item.setRequest(request);
+                }
+                Item saved = itemRepository.save(item);
+                searchIndex.put(IndexedItem.of(saved));
+                results.add(BatchResultDto.success(i, itemMapper.toDto(saved)));
+            } catch (ValidationException | NotFoundException e) {
+                results.add(BatchResultDto.failure(i, e.getMessage()));
+            }
+        }
+        return results;
     }
 
     @Override
@@ -100,7 +177,32 @@ public class ItemServiceImpl implements ItemService {
         if (itemDto.getAvailable() != null) {
             item.setAvailable(itemDto.getAvailable());
         }
-        return itemMapper.toDto(itemRepository.save(item));
+        Item saved = itemRepository.save(item);
+        searchIndex.put(IndexedItem.of(saved));
+        return itemMapper.toDto(saved);
+    }
+
+    @Override
+    @Transactional
+    public List<BatchResultDto<ItemDto>> updateAvailability(long userId, List<Long> itemIds, boolean available) {
+        // изменения сбрасываются пакетом при коммите; bulk update инвалидировал бы весь регион кэша Item
+        Map<Long, Item> found = itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        List<BatchResultDto<ItemDto>> results = new ArrayList<>(itemIds.size());
+        for (int i = 0; i < itemIds.size(); i++) {
+            Long itemId = itemIds.get(i);
+            Item item = found.get(itemId);
+            if (item == null) {
+                results.add(BatchResultDto.failure(i, String.format("Вещь с ID %d не найдена", itemId)));
+            } else if (userId != item.getOwner().getId()) {
+                results.add(BatchResultDto.failure(i, "Редактировать вещь может только её владелец"));
+            } else {
+                item.setAvailable(available);
+                searchIndex.put(IndexedItem.of(item));
+                results.add(BatchResultDto.success(i, itemMapper.toDto(item)));
+            }
+        }
+        return results;
     }
 
     @Override
@@ -108,8 +210,45 @@ public class ItemServiceImpl implements ItemService {
         if (StringUtils.isBlank(text)) {
             return Collections.emptyList();
         }
-        return itemRepository.searchByQuery(text.toLowerCase(), PageRequest.of(from / size, size))
-                .stream()
+        PageRequest pageRequest = PageRequest.of(from / size, size, Sort.by(Sort.Direction.ASC, "id"));
+        if (!searchIndex.isReady()) {
+            return itemRepository.searchByQuery(text.toLowerCase(), pageRequest)
+                    .stream()
+                    .map(itemMapper::toDto)
+                    .collect(Collectors.toList());
+        }
+        List<Long> ids = searchIndex.search(
+                text.toLowerCase(),
+                (int) pageRequest.getOffset(),
+                pageRequest.getPageSize()
+        );
+        Map<Long, Item> found = itemRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        return ids.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .map(itemMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ItemDto> searchAvailableItems(long userId, String text, LocalDateTime start, LocalDateTime end,
+                                              int from, int size) {
+        if (!start.isBefore(end)) {
+            throw new ValidationException("Время аренды указано некорректно");
+        }
+        if (StringUtils.isBlank(text)) {
+            return Collections.emptyList();
+        }
+        PageRequest pageRequest = PageRequest.of(from / size, size, Sort.by(Sort.Direction.ASC, "id"));
+        List<Item> items = itemRepository.searchAvailableByQuery(
+                text.toLowerCase(),
+                start,
+                end,
+                BookingIntervalIndex.ACTIVE_STATUSES,
+                pageRequest
+        );
+        return items.stream()
                 .map(itemMapper::toDto)
                 .collect(Collectors.toList());
     }
@@ -131,6 +270,68 @@ public class ItemServiceImpl implements ItemService {
         return commentMapper.toDto(commentRepository.save(comment));
     }
 
+    @Override
+    public ItemAvailabilityDto getAvailability(long userId, long itemId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new ValidationException("Интервал доступности указан некорректно");
+        }
+        findItemOrThrowException(itemId);
+        List<IntervalDto> busy = mergeBusy(intervalIndex.findOverlapping(itemId, from, to), from, to);
+        List<IntervalDto> free = new ArrayList<>();
+        LocalDateTime freeStart = from;
+        for (IntervalDto interval : busy) {
+            if (freeStart.isBefore(interval.getStart())) {
+                free.add(new IntervalDto(freeStart, interval.getStart()));
+            }
+            freeStart = interval.getEnd();
+        }
+        if (freeStart.isBefore(to)) {
+            free.add(new IntervalDto(freeStart, to));
+        }
+        return ItemAvailabilityDto.builder()
+                .itemId(itemId)
+                .from(from)
+                .to(to)
+                .busy(busy)
+                .free(free)
+                .build();
+    }
+
+    private static List<IntervalDto> mergeBusy(List<BookedInterval> intervals, LocalDateTime from, LocalDateTime to) {
+        List<IntervalDto> busy = new ArrayList<>();
+        LocalDateTime busyStart = null;
+        LocalDateTime busyEnd = null;
+        for (BookedInterval interval : intervals) {
+            LocalDateTime start = interval.getStart().isBefore(from) ? from : interval.getStart();
+            LocalDateTime end = interval.getEnd().isAfter(to) ? to : interval.getEnd();
+            if (busyEnd != null && !start.isAfter(busyEnd)) {
+                busyEnd = end.isAfter(busyEnd) ? end : busyEnd;
+                continue;
+            }
+            if (busyEnd != null) {
+                busy.add(new IntervalDto(busyStart, busyEnd));
+            }
+            busyStart = start;
+            busyEnd = end;
+        }
+        if (busyEnd != null) {
+            busy.add(new IntervalDto(busyStart, busyEnd));
+        }
+        return busy;
+    }
+
+    private static void validate(ItemDto itemDto) {
+        if (StringUtils.isBlank(itemDto.getName())) {
+            throw new ValidationException("Название не может быть пустым");
+        }
+        if (StringUtils.isBlank(itemDto.getDescription())) {
+            throw new ValidationException("Описание не может быть пустым");
+        }
+        if (itemDto.getAvailable() == null) {
+            throw new ValidationException("Необходимо указать, доступна ли вещь для аренды");
+        }
+    }
+
     private Item findItemOrThrowException(long itemId) {
         return itemRepository.findById(itemId).orElseThrow(
                 () -> new NotFoundException(
@@ -145,30 +346,55 @@ public class ItemServiceImpl implements ItemService {
         );
     }
 
-    private ItemDto uploadBookings(ItemDto itemDto) {
-        Booking lastBooking = bookingRepository.findFirstByItemIdAndStartBeforeOrderByStartDesc(
-                itemDto.getId(),
-                LocalDateTime.now()
-        );
-        Booking nextBooking = bookingRepository.findFirstByItemIdAndStartAfterAndStatusOrderByStartAsc(
-                itemDto.getId(),
-                LocalDateTime.now(),
-                Status.APPROVED
-        );
-        if (lastBooking != null) {
-            itemDto.setLastBooking(bookingMapper.toDtoShort(lastBooking));
+    private List<ItemDto> toOwnerDtos(List<Item> found) {
+        List<ItemDto> items = found.stream()
+                .map(itemMapper::toDto)
+                .collect(Collectors.toList());
+        uploadBookings(items);
+        uploadComments(items);
+        return items;
+    }
+
+    private void uploadBookings(List<ItemDto> items) {
+        if (items.isEmpty()) {
+            return;
         }
-        if (nextBooking != null) {
-            itemDto.setNextBooking(bookingMapper.toDtoShort(nextBooking));
+        LocalDateTime now = LocalDateTime.now();
+        List<Booking> found = bookingRepository.findLastAndNextBookings(toIds(items), now, Status.APPROVED);
+        Map<Long, List<Booking>> bookingsByItem = found.stream()
+                .collect(Collectors.groupingBy(booking -> booking.getItem().getId()));
+        for (ItemDto itemDto : items) {
+            List<Booking> bookings = bookingsByItem.getOrDefault(itemDto.getId(), Collections.emptyList());
+            bookings.stream()
+                    .filter(booking -> booking.getStart().isBefore(now))
+                    .max(Comparator.comparing(Booking::getId))
+                    .map(bookingMapper::toDtoShort)
+                    .ifPresent(itemDto::setLastBooking);
+            bookings.stream()
+                    .filter(booking -> booking.getStart().isAfter(now))
+                    .min(Comparator.comparing(Booking::getId))
+                    .map(bookingMapper::toDtoShort)
+                    .ifPresent(itemDto::setNextBooking);
         }
-        return itemDto;
     }
 
-    private ItemDto uploadComments(ItemDto itemDto) {
-        List<CommentDto> comments = commentRepository.findByItemId(itemDto.getId()).stream()
-                .map(commentMapper::toDto)
+    private void uploadComments(List<ItemDto> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Map<Long, List<CommentDto>> commentsByItem = commentRepository.findByItemIdIn(toIds(items)).stream()
+                .collect(Collectors.groupingBy(
+                        comment -> comment.getItem().getId(),
+                        Collectors.mapping(commentMapper::toDto, Collectors.toList())
+                ));
+        for (ItemDto itemDto : items) {
+            itemDto.setComments(commentsByItem.getOrDefault(itemDto.getId(), new ArrayList<>()));
+        }
+    }
+
+    private static List<Long> toIds(List<ItemDto> items) {
+        return items.stream()
+                .map(ItemDto::getId)
                 .collect(Collectors.toList());
-        itemDto.setComments(comments);
-        return itemDto;
     }
 }
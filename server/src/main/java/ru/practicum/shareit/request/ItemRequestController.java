@@ -2,10 +2,15 @@ package ru.practicum.shareit.request;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.util.PageCursor;
+import ru.practicum.shareit.util.Tagged;
 
 import java.util.List;
 
@@ -24,20 +29,37 @@ public class ItemRequestController {
     }
 
     @GetMapping
-    public List<ItemRequestDto> getAllByRequestor(@RequestHeader("X-Sharer-User-Id") long userId) {
-        return itemRequestService.getAllByRequestor(userId);
+    public List<ItemRequestDto> getAllByRequestor(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                  @RequestParam(defaultValue = "0") int from,
+                                                  @RequestParam(required = false) Integer size) {
+        return size == null
+                ? itemRequestService.getAllByRequestor(userId)
+                : itemRequestService.getAllByRequestor(userId, from, size);
     }
 
     @GetMapping("all")
-    public List<ItemRequestDto> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
-                                       @RequestParam(defaultValue = "0") int from,
-                                       @RequestParam(defaultValue = "10") int size) {
-        return itemRequestService.getAll(userId, from, size);
+    public ResponseEntity<List<ItemRequestDto>> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                       @RequestParam(defaultValue = "0") int from,
+                                                       @RequestParam(defaultValue = "10") int size,
+                                                       @RequestParam(required = false) String after) {
+        List<ItemRequestDto> requests = after == null
+                ? itemRequestService.getAll(userId, from, size)
+                : itemRequestService.getAll(userId, PageCursor.decode(after), size);
+        return PageCursor.withNextCursor(
+                requests,
+                size,
+                request -> PageCursor.of(request.getCreated(), request.getId())
+        );
     }
 
     @GetMapping("{requestId}")
     public ItemRequestDto getItemRequest(@RequestHeader("X-Sharer-User-Id") long userId,
-                                         @PathVariable long requestId) {
-        return itemRequestService.getItemRequest(userId, requestId);
+                                         @PathVariable long requestId,
+                                         WebRequest request) {
+        Tagged<ItemRequestDto> itemRequest = itemRequestService.getItemRequest(userId, requestId, request.getHeader(HttpHeaders.IF_NONE_MATCH));
+        if (itemRequest.getEtag() != null && request.checkNotModified(itemRequest.getEtag())) {
+            return null;
+        }
+        return itemRequest.getBody();
     }
 }
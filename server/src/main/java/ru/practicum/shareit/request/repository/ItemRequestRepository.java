@@ -3,12 +3,32 @@ package ru.practicum.shareit.request.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.request.dto.ItemRequestVersionView;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
     List<ItemRequest> findByRequestorIdOrderByCreatedDesc(Long requestorId);
 
+    List<ItemRequest> findByRequestorId(Long requestorId, Pageable pageable);
+
     Page<ItemRequest> findAllByRequestorIdNot(Long requestorId, Pageable pageable);
+
+    @Query("from ItemRequest as r " +
+            "where r.requestor.id <> :requestorId " +
+            "and (r.created < :created or (r.created = :created and r.id < :id)) " +
+            "order by r.created desc, r.id desc")
+    List<ItemRequest> findAllByRequestorIdNotAfter(Long requestorId, LocalDateTime created, Long id,
+                                                   Pageable pageable);
+
+    @Query("select r.version as version, " +
+            "(select count(it) from Item as it where it.request = r) as items, " +
+            "(select coalesce(sum(it.version), 0) from Item as it where it.request = r) as itemsVersion " +
+            "from ItemRequest as r " +
+            "where r.id = :id")
+    Optional<ItemRequestVersionView> findVersionById(Long id);
 }
@@ -1,6 +1,8 @@
 package ru.practicum.shareit.request.service;
 
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.util.PageCursor;
+import ru.practicum.shareit.util.Tagged;
 
 import java.util.List;
 
@@ -9,7 +11,11 @@ public interface ItemRequestService {
 
     List<ItemRequestDto> getAllByRequestor(long requestorId);
 
+    List<ItemRequestDto> getAllByRequestor(long requestorId, int from, int size);
+
     List<ItemRequestDto> getAll(long userId, int from, int size);
 
-    ItemRequestDto getItemRequest(long userId, long requestId);
+    List<ItemRequestDto> getAll(long userId, PageCursor after, int size);
+
+    Tagged<ItemRequestDto> getItemRequest(long userId, long requestId, String ifNoneMatch);
 }
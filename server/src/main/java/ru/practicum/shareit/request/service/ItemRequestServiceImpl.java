@@ -14,9 +14,16 @@ import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.util.EntityTag;
 import ru.practicum.shareit.util.Mapper;
+import ru.practicum.shareit.util.PageCursor;
+import ru.practicum.shareit.util.Tagged;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,10 +48,18 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     @Override
     public List<ItemRequestDto> getAllByRequestor(long requestorId) {
         findUserOrThrowException(requestorId);
-        return itemRequestRepository.findByRequestorIdOrderByCreatedDesc(requestorId).stream()
-                .map(itemRequestMapper::toDto)
-                .map(this::uploadItems)
-                .collect(Collectors.toList());
+        return toDtos(itemRequestRepository.findByRequestorIdOrderByCreatedDesc(requestorId));
+    }
+
+    @Override
+    public List<ItemRequestDto> getAllByRequestor(long requestorId, int from, int size) {
+        findUserOrThrowException(requestorId);
+        PageRequest pageRequest = PageRequest.of(
+                from / size,
+                size,
+                Sort.by(Sort.Direction.DESC, "created", "id")
+        );
+        return toDtos(itemRequestRepository.findByRequestorId(requestorId, pageRequest));
     }
 
     @Override
@@ -53,25 +68,47 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         PageRequest pageRequest = PageRequest.of(
                 from / size,
                 size,
-                Sort.by(Sort.Direction.DESC, "created")
+                Sort.by(Sort.Direction.DESC, "created", "id")
         );
-        return itemRequestRepository.findAllByRequestorIdNot(userId, pageRequest).stream()
-                .map(itemRequestMapper::toDto)
-                .map(this::uploadItems)
-                .collect(Collectors.toList());
+        return toDtos(itemRequestRepository.findAllByRequestorIdNot(userId, pageRequest).getContent());
     }
 
     @Override
-    public ItemRequestDto getItemRequest(long userId, long requestId) {
+    public List<ItemRequestDto> getAll(long userId, PageCursor after, int size) {
         findUserOrThrowException(userId);
-        return itemRequestRepository.findById(requestId)
-                .map(itemRequestMapper::toDto)
-                .map(this::uploadItems)
-                .orElseThrow(
-                        () -> new NotFoundException(
-                                String.format("Запрос с ID %d не найден", requestId)
-                        )
-                );
+        List<ItemRequest> requests = itemRequestRepository.findAllByRequestorIdNotAfter(
+                userId,
+                after.getTimestampOrThrow(),
+                after.getId(),
+                PageRequest.of(0, size)
+        );
+        return toDtos(requests);
+    }
+
+    @Override
+    public Tagged<ItemRequestDto> getItemRequest(long userId, long requestId, String ifNoneMatch) {
+        if (ifNoneMatch != null && userRepository.existsById(userId)) {
+            Optional<String> etag = itemRequestRepository.findVersionById(requestId)
+                    .map(view -> EntityTag.of(view.getVersion(), view.getItems(), view.getItemsVersion()));
+            if (etag.isPresent() && EntityTag.matches(ifNoneMatch, etag.get())) {
+                return Tagged.notModified(etag.get());
+            }
+        }
+        findUserOrThrowException(userId);
+        ItemRequest request = itemRequestRepository.findById(requestId).orElseThrow(
+                () -> new NotFoundException(
+                        String.format("Запрос с ID %d не найден", requestId)
+                )
+        );
+        List<Item> items = itemRepository.findByRequestIdIn(List.of(requestId));
+        ItemRequestDto dto = itemRequestMapper.toDto(request);
+        dto.setItems(items.stream()
+                .map(itemMapper::toDto)
+                .collect(Collectors.toList()));
+        long itemsVersion = items.stream()
+                .mapToLong(Item::getVersion)
+                .sum();
+        return Tagged.of(EntityTag.of(request.getVersion(), items.size(), itemsVersion), dto);
     }
 
     private User findUserOrThrowException(long userId) {
@@ -81,11 +118,24 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         );
     }
 
-    private ItemRequestDto uploadItems(ItemRequestDto itemRequestDto) {
-        List<ItemDto> items = itemRepository.findByRequestId(itemRequestDto.getId()).stream()
-                .map(itemMapper::toDto)
+    private List<ItemRequestDto> toDtos(List<ItemRequest> requests) {
+        if (requests.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> requestIds = requests.stream()
+                .map(ItemRequest::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<ItemDto>> itemsByRequest = itemRepository.findByRequestIdIn(requestIds).stream()
+                .collect(Collectors.groupingBy(
+                        item -> item.getRequest().getId(),
+                        Collectors.mapping(itemMapper::toDto, Collectors.toList())
+                ));
+        List<ItemRequestDto> dtos = requests.stream()
+                .map(itemRequestMapper::toDto)
                 .collect(Collectors.toList());
-        itemRequestDto.setItems(items);
-        return itemRequestDto;
+        for (ItemRequestDto dto : dtos) {
+            dto.setItems(itemsByRequest.getOrDefault(dto.getId(), new ArrayList<>()));
+        }
+        return dtos;
     }
 }
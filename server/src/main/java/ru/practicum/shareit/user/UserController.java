@@ -2,9 +2,13 @@ package ru.practicum.shareit.user;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
+import ru.practicum.shareit.util.BatchResultDto;
+import ru.practicum.shareit.util.Tagged;
 
 import java.util.List;
 
@@ -21,8 +25,13 @@ public class UserController {
     }
 
     @GetMapping("{id}")
-    public UserDto getUser(@PathVariable long id) {
-        return userService.getUser(id);
+    public UserDto getUser(@PathVariable long id,
+                           WebRequest request) {
+        Tagged<UserDto> user = userService.getUser(id, request.getHeader(HttpHeaders.IF_NONE_MATCH));
+        if (user.getEtag() != null && request.checkNotModified(user.getEtag())) {
+            return null;
+        }
+        return user.getBody();
     }
 
     @PostMapping
@@ -30,6 +39,11 @@ public class UserController {
         return userService.saveUser(userDto);
     }
 
+    @PostMapping("batch")
+    public List<BatchResultDto<UserDto>> saveNewUsers(@RequestBody List<UserDto> userDtos) {
+        return userService.saveUsers(userDtos);
+    }
+
     @PatchMapping("{id}")
     public UserDto updateUser(@PathVariable long id,
                               @RequestBody UserDto userDto) {
@@ -1,7 +1,17 @@
 package ru.practicum.shareit.user.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.user.User;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 public interface UserRepository extends JpaRepository<User, Long> {
+    @Query("select u.email from User as u where u.email in :emails")
+    List<String> findEmailsIn(Collection<String> emails);
+
+    @Query("select u.version from User as u where u.id = :id")
+    Optional<Long> findVersionById(Long id);
 }
@@ -1,16 +1,20 @@
 package ru.practicum.shareit.user.service;
 
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.util.BatchResultDto;
+import ru.practicum.shareit.util.Tagged;
 
 import java.util.List;
 
 public interface UserService {
     List<UserDto> getAllUsers();
 
-    UserDto getUser(long id);
+    Tagged<UserDto> getUser(long id, String ifNoneMatch);
 
     UserDto saveUser(UserDto userDto);
 
+    List<BatchResultDto<UserDto>> saveUsers(List<UserDto> userDtos);
+
     UserDto updateUser(long id, UserDto userDto);
 
     void deleteUser(long id);
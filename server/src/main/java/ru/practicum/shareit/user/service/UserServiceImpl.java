@@ -5,18 +5,30 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.util.BatchResultDto;
+import ru.practicum.shareit.util.EntityTag;
 import ru.practicum.shareit.util.Mapper;
+import ru.practicum.shareit.util.Tagged;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class UserServiceImpl implements UserService {
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+$");
+
     private final UserRepository userRepository;
     private final Mapper<User, UserDto> userMapper;
 
@@ -28,13 +40,19 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public UserDto getUser(long id) {
-        return userRepository.findById(id)
-                .map(userMapper::toDto)
-                .orElseThrow(
-                        () -> new NotFoundException(
-                                String.format("Пользователь с ID %d не найден", id))
-                );
+    public Tagged<UserDto> getUser(long id, String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> etag = userRepository.findVersionById(id)
+                    .map(EntityTag::of);
+            if (etag.isPresent() && EntityTag.matches(ifNoneMatch, etag.get())) {
+                return Tagged.notModified(etag.get());
+            }
+        }
+        User user = userRepository.findById(id).orElseThrow(
+                () -> new NotFoundException(
+                        String.format("Пользователь с ID %d не найден", id))
+        );
+        return Tagged.of(EntityTag.of(user.getVersion()), userMapper.toDto(user));
     }
 
     @Override
@@ -44,6 +62,35 @@ public class UserServiceImpl implements UserService {
         return userMapper.toDto(user);
     }
 
+    @Override
+    @Transactional
+    public List<BatchResultDto<UserDto>> saveUsers(List<UserDto> userDtos) {
+        Set<String> emails = userDtos.stream()
+                .map(UserDto::getEmail)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<String> takenEmails = emails.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(userRepository.findEmailsIn(emails));
+        List<BatchResultDto<UserDto>> results = new ArrayList<>(userDtos.size());
+        for (int i = 0; i < userDtos.size(); i++) {
+            UserDto userDto = userDtos.get(i);
+            try {
+                validate(userDto);
+                if (!takenEmails.add(userDto.getEmail())) {
+                    throw new ValidationException(
+                            String.format("Пользователь с email %s уже существует", userDto.getEmail())
+                    );
+                }
+                User user = userRepository.save(userMapper.toEntity(userDto));
+                results.add(BatchResultDto.success(i, userMapper.toDto(user)));
+            } catch (ValidationException e) {
+                results.add(BatchResultDto.failure(i, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
     @Override
     @Transactional
     public UserDto updateUser(long id, UserDto userDto) {
@@ -66,4 +113,16 @@ public class UserServiceImpl implements UserService {
     public void deleteUser(long id) {
         userRepository.deleteById(id);
     }
+
+    private static void validate(UserDto userDto) {
+        if (StringUtils.isBlank(userDto.getName())) {
+            throw new ValidationException("Имя не может быть пустым");
+        }
+        if (StringUtils.isBlank(userDto.getEmail())) {
+            throw new ValidationException("Email не может быть пустым");
+        }
+        if (!EMAIL_PATTERN.matcher(userDto.getEmail()).matches()) {
+            throw new ValidationException("Email введён некорректно");
+        }
+    }
 }
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.util;
+
+import lombok.Value;
+
+@Value
+public class BatchResultDto<T> {
+    int index;
+    T result;
+    String error;
+
+    public static <T> BatchResultDto<T> success(int index, T result) {
+        return new BatchResultDto<>(index, result, null);
+    }
+
+    public static <T> BatchResultDto<T> failure(int index, String error) {
+        return new BatchResultDto<>(index, null, error);
+    }
+}
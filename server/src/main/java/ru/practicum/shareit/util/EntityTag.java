@@ -0,0 +1,33 @@
+package ru.practicum.shareit.util;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+// слабый ETag из версий сущностей, из которых собирается ответ; тело для него не строится и не хешируется
+public final class EntityTag {
+    private EntityTag() {
+    }
+
+    public static String of(Object... versions) {
+        return Arrays.stream(versions)
+                .map(String::valueOf)
+                .collect(Collectors.joining("-", "W/\"", "\""));
+    }
+
+    // слабое сравнение, как в WebRequest.checkNotModified: W/"1-2" совпадает с "1-2".
+    // "*" не учитывается, поэтому совпадение здесь всегда означает и 304 от контроллера
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = opaque(etag);
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(EntityTag::opaque)
+                .anyMatch(opaqueTag::equals);
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.shareit.util;
+
+import lombok.Value;
+import org.springframework.http.ResponseEntity;
+import ru.practicum.shareit.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+@Value
+public class PageCursor {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String SEPARATOR = "|";
+
+    LocalDateTime timestamp;
+    Long id;
+
+    public static PageCursor of(Long id) {
+        return new PageCursor(null, id);
+    }
+
+    public static PageCursor of(LocalDateTime timestamp, Long id) {
+        return new PageCursor(timestamp, id);
+    }
+
+    public static PageCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0) {
+                return of(Long.parseLong(value));
+            }
+            return of(
+                    LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidationException(String.format("Некорректный курсор %s", token));
+        }
+    }
+
+    public String encode() {
+        String value = timestamp == null ? String.valueOf(id) : timestamp + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getTimestampOrThrow() {
+        if (timestamp == null) {
+            throw new ValidationException(String.format("Курсор %s не подходит для этого списка", encode()));
+        }
+        return timestamp;
+    }
+
+    public static <T> ResponseEntity<List<T>> withNextCursor(List<T> page, int size,
+                                                             Function<T, PageCursor> cursorOf) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (!page.isEmpty() && page.size() == size) {
+            builder.header(NEXT_CURSOR_HEADER, cursorOf.apply(page.get(page.size() - 1)).encode());
+        }
+        return builder.body(page);
+    }
+}
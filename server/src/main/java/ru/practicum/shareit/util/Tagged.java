@@ -0,0 +1,23 @@
+package ru.practicum.shareit.util;
+
+import lombok.Value;
+
+// ответ на GET одного ресурса: тела нет, если версия совпала с If-None-Match;
+// etag == null - ответ зависит от текущего времени и не кэшируется
+@Value
+public class Tagged<T> {
+    String etag;
+    T body;
+
+    public static <T> Tagged<T> notModified(String etag) {
+        return new Tagged<>(etag, null);
+    }
+
+    public static <T> Tagged<T> of(String etag, T body) {
+        return new Tagged<>(etag, body);
+    }
+
+    public static <T> Tagged<T> untagged(T body) {
+        return new Tagged<>(null, body);
+    }
+}
@@ -0,0 +1,38 @@
+-- триграммные индексы обслуживают поиск по тексту в БД: поиск свободных на период вещей идёт только через
+-- БД, обычный поиск - пока ItemSearchIndex не загружен после старта, дальше на него отвечает индекс в памяти
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS IX_ITEMS_AVAILABLE_NAME_TRGM
+  ON items USING gin (lower(name) gin_trgm_ops)
+  WHERE available;
+
+CREATE INDEX IF NOT EXISTS IX_ITEMS_AVAILABLE_DESCRIPTION_TRGM
+  ON items USING gin (lower(description) gin_trgm_ops)
+  WHERE available;
+
+-- строки, созданные до перехода на последовательности, не должны пересекаться с новыми id;
+-- в пустой базе последовательность не трогаем, чтобы нумерация начиналась с 1
+SELECT setval('users_seq', GREATEST((SELECT last_value FROM users_seq), (SELECT MAX(id) FROM users)))
+  WHERE EXISTS (SELECT 1 FROM users);
+
+SELECT setval('items_seq', GREATEST((SELECT last_value FROM items_seq), (SELECT MAX(id) FROM items)))
+  WHERE EXISTS (SELECT 1 FROM items);
+
+SELECT setval('bookings_seq', GREATEST((SELECT last_value FROM bookings_seq), (SELECT MAX(id) FROM bookings)))
+  WHERE EXISTS (SELECT 1 FROM bookings);
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+ALTER TABLE requests ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+-- курсор списка запросов строится по (created, id), поэтому created не может быть пустым;
+-- старые строки без даты считаются самыми новыми, как и раньше при сортировке created DESC
+ALTER TABLE requests ALTER COLUMN created SET DEFAULT LOCALTIMESTAMP;
+
+UPDATE requests SET created = LOCALTIMESTAMP WHERE created IS NULL;
+
+ALTER TABLE requests ALTER COLUMN created SET NOT NULL;
@@ -2,6 +2,7 @@ CREATE TABLE IF NOT EXISTS users (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
     name VARCHAR(255) NOT NULL,
     email VARCHAR(512) NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL,
     CONSTRAINT PK_USER PRIMARY KEY (id),
     CONSTRAINT UQ_USER_EMAIL UNIQUE (email)
 );
@@ -10,7 +11,8 @@ CREATE TABLE IF NOT EXISTS requests (
   id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
   description VARCHAR NOT NULL,
   requestor_id BIGINT NOT NULL REFERENCES users(id),
-  created TIMESTAMP WITHOUT TIME ZONE
+  created TIMESTAMP WITHOUT TIME ZONE DEFAULT LOCALTIMESTAMP NOT NULL,
+  version BIGINT DEFAULT 0 NOT NULL
 );
 
 CREATE TABLE IF NOT EXISTS items (
@@ -19,7 +21,8 @@ CREATE TABLE IF NOT EXISTS items (
   description VARCHAR NOT NULL,
   available BOOLEAN NOT NULL,
   owner_id BIGINT NOT NULL REFERENCES users(id),
-  request_id BIGINT REFERENCES requests(id)
+  request_id BIGINT REFERENCES requests(id),
+  version BIGINT DEFAULT 0 NOT NULL
 );
 
 CREATE TABLE IF NOT EXISTS bookings (
@@ -28,9 +31,16 @@ CREATE TABLE IF NOT EXISTS bookings (
   end_date TIMESTAMP WITHOUT TIME ZONE,
   item_id BIGINT NOT NULL REFERENCES items(id),
   booker_id BIGINT NOT NULL REFERENCES users(id),
-  status VARCHAR(10) NOT NULL
+  status VARCHAR(10) NOT NULL,
+  version BIGINT DEFAULT 0 NOT NULL
 );
 
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS comments (
   id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
   text VARCHAR NOT NULL,
@@ -0,0 +1,234 @@
+package ru.practicum.shareit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.State;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.index.BookingIntervalIndex;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.service.BookingServiceImpl;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.mapper.CommentMapper;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.item.service.ItemServiceImpl;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.request.mapper.ItemRequestMapper;
+import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.request.service.ItemRequestServiceImpl;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.mapper.UserMapper;
+import ru.practicum.shareit.util.PageCursor;
+import ru.practicum.shareit.util.Tagged;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// число SQL-запросов на сценарий не должно зависеть от размера страницы и расти из-за ленивых связей
+@DataJpaTest
+@Import({ItemServiceImpl.class, BookingServiceImpl.class, ItemRequestServiceImpl.class,
+        ItemMapper.class, CommentMapper.class, BookingMapper.class, UserMapper.class, ItemRequestMapper.class,
+        ItemSearchIndex.class, BookingIntervalIndex.class})
+class StatementCountTest {
+    private static final int ITEMS = 12;
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private ItemRequestService itemRequestService;
+
+    private Statistics statistics;
+    private User owner;
+    private User booker;
+    private final List<Item> items = new ArrayList<>();
+    private final List<Booking> bookings = new ArrayList<>();
+    private ItemRequest request;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        owner = em.persist(new User(null, "Владелец", "owner@mail.ru"));
+        booker = em.persist(new User(null, "Арендатор", "booker@mail.ru"));
+        request = new ItemRequest("Нужна дрель");
+        request.setRequestor(booker);
+        em.persist(request);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < ITEMS; i++) {
+            Item item = em.persist(Item.builder()
+                    .name("Вещь " + i)
+                    .description("Описание " + i)
+                    .available(true)
+                    .owner(owner)
+                    .request(i == 0 ? request : null)
+                    .build());
+            items.add(item);
+            bookings.add(em.persist(booking(item, now.minusDays(3), now.minusDays(2), Status.APPROVED)));
+            bookings.add(em.persist(booking(item, now.plusDays(2), now.plusDays(3), Status.WAITING)));
+            for (int c = 0; c < 2; c++) {
+                Comment comment = new Comment("Комментарий " + c);
+                comment.setItem(item);
+                comment.setAuthor(booker);
+                em.persist(comment);
+            }
+        }
+    }
+
+    @Test
+    void ownerItemPageCostsSameStatementsForAnyPageSize() {
+        // страница, сумма страниц (страница заполнена), бронирования и комментарии - по одному запросу
+        long small = statements(() -> itemService.getItems(owner.getId(), 0, 4));
+        long large = statements(() -> itemService.getItems(owner.getId(), 0, ITEMS));
+
+        assertThat(small).isEqualTo(4);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void ownerItemPageByCursorSkipsCountQuery() {
+        long small = statements(() -> itemService.getItems(owner.getId(), PageCursor.of(0L), 4));
+        long large = statements(() -> itemService.getItems(owner.getId(), PageCursor.of(0L), ITEMS));
+
+        assertThat(small).isEqualTo(3);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void itemDetail() {
+        long itemId = items.get(0).getId();
+
+        assertThat(statements(() -> itemService.getItem(booker.getId(), itemId, null))).isEqualTo(2);
+        assertThat(statements(() -> itemService.getItem(owner.getId(), itemId, null))).isEqualTo(3);
+    }
+
+    @Test
+    void itemDetailNotModifiedLoadsOnlyVersions() {
+        long itemId = items.get(0).getId();
+        String etag = itemService.getItem(booker.getId(), itemId, null).getEtag();
+        Tagged<?>[] result = new Tagged<?>[1];
+
+        assertThat(statements(() -> result[0] = itemService.getItem(booker.getId(), itemId, etag))).isEqualTo(1);
+        assertThat(result[0].getBody()).isNull();
+    }
+
+    @Test
+    void bookingListCostsSameStatementsForAnyPageSize() {
+        long small = statements(() -> bookingService.getBookerBookings(booker.getId(), "ALL", 0, 4));
+        long large = statements(() -> bookingService.getBookerBookings(booker.getId(), "ALL", 0, ITEMS * 2));
+        long owner = statements(() -> bookingService.getOwnerBookings(this.owner.getId(), "ALL", 0, ITEMS * 2));
+
+        assertThat(small).isEqualTo(2);
+        assertThat(large).isEqualTo(small);
+        assertThat(owner).isEqualTo(small);
+    }
+
+    @Test
+    void bookingListsReadProjectionsInOneStatementForEveryState() {
+        // пользователь и один запрос проекций; из сущностей загружается только пользователь
+        for (State state : State.values()) {
+            assertThat(projectionStatements(() -> bookingService.getBookerBookings(booker.getId(), state.name(),
+                    0, ITEMS))).as("booker %s", state).isEqualTo(2);
+            assertThat(projectionStatements(() -> bookingService.getOwnerBookings(owner.getId(), state.name(),
+                    0, ITEMS))).as("owner %s", state).isEqualTo(2);
+            assertThat(projectionStatements(() -> bookingService.getBookerBookings(booker.getId(), state.name(),
+                    PageCursor.of(LocalDateTime.now().plusYears(1), 0L), ITEMS))).as("booker %s after", state)
+                    .isEqualTo(2);
+            assertThat(projectionStatements(() -> bookingService.getOwnerBookings(owner.getId(), state.name(),
+                    PageCursor.of(LocalDateTime.now().plusYears(1), 0L), ITEMS))).as("owner %s after", state)
+                    .isEqualTo(2);
+        }
+    }
+
+    @Test
+    void bookingExportReadsProjectionsInOneStatement() {
+        List<BookingDto> exported = new ArrayList<>();
+
+        assertThat(projectionStatements(() -> bookingService.exportBookerBookings(booker.getId(), exported::add)))
+                .isEqualTo(2);
+        assertThat(projectionStatements(() -> bookingService.exportOwnerBookings(owner.getId(), exported::add)))
+                .isEqualTo(2);
+        assertThat(exported).hasSize(bookings.size() * 2);
+    }
+
+    @Test
+    void bookingDetail() {
+        long bookingId = bookings.get(0).getId();
+
+        assertThat(statements(() -> bookingService.getBooking(booker.getId(), bookingId, null))).isEqualTo(1);
+    }
+
+    @Test
+    void approveChecksOwnershipWithoutExtraSelects() {
+        long bookingId = bookings.get(1).getId();
+
+        // бронирование с вещью и арендатором одним запросом, затем обновление статуса
+        assertThat(statements(() -> {
+            bookingService.approveBooking(owner.getId(), bookingId, true);
+            em.flush();
+        })).isEqualTo(2);
+    }
+
+    @Test
+    void commentSave() {
+        long itemId = items.get(0).getId();
+        CommentDto commentDto = new CommentDto(null, "Отличная вещь", null, null);
+
+        // автор, вещь, проверка завершённой аренды и вставка
+        assertThat(statements(() -> itemService.saveComment(booker.getId(), itemId, commentDto))).isEqualTo(4);
+    }
+
+    @Test
+    void itemRequestDetail() {
+        long requestId = request.getId();
+
+        // пользователь, запрос и вещи по нему
+        assertThat(statements(() -> itemRequestService.getItemRequest(owner.getId(), requestId, null)))
+                .isEqualTo(3);
+    }
+
+    private long statements(Runnable call) {
+        em.flush();
+        em.clear();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+        call.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long projectionStatements(Runnable call) {
+        long count = statements(call);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+        return count;
+    }
+
+    private Booking booking(Item item, LocalDateTime start, LocalDateTime end, Status status) {
+        return Booking.builder()
+                .item(item)
+                .booker(booker)
+                .start(start)
+                .end(end)
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,143 @@
+package ru.practicum.shareit.booking.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.model.Item;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookingIntervalIndexTest {
+    private static final long ITEM_ID = 1L;
+    private static final int THREADS = 16;
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    private final AtomicLong ids = new AtomicLong();
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    private BookingIntervalIndex index;
+
+    @BeforeEach
+    void setUp() {
+        BookingRepository bookingRepository = mock(BookingRepository.class);
+        when(bookingRepository.findIntervalsByStatusIn(any())).thenReturn(List.of());
+        index = new BookingIntervalIndex(bookingRepository);
+        index.warmUp();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentOverlappingReservationsOnOneItemAdmitOnlyOne() throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            // все интервалы попарно пересекаются
+            bookings.add(booking(BASE.plusHours(i), BASE.plusHours(i + THREADS)));
+        }
+
+        runConcurrently(bookings, rejected);
+
+        assertThat(rejected).hasValue(THREADS - 1);
+        assertThat(index.findOverlapping(ITEM_ID, BASE, BASE.plusHours(THREADS * 2L))).hasSize(1);
+    }
+
+    @Test
+    void concurrentDisjointReservationsOnOneItemAllSucceed() throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            bookings.add(booking(BASE.plusHours(i * 2L), BASE.plusHours(i * 2L + 1)));
+        }
+
+        runConcurrently(bookings, rejected);
+
+        assertThat(rejected).hasValue(0);
+        assertThat(index.findOverlapping(ITEM_ID, BASE, BASE.plusHours(THREADS * 2L))).hasSize(THREADS);
+    }
+
+    @Test
+    void overlappingReservationIsRejected() {
+        index.reserve(booking(BASE, BASE.plusDays(2)), this::save);
+
+        assertThatThrownBy(() -> index.reserve(booking(BASE.plusDays(1), BASE.plusDays(3)), this::save))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void releasingLongestBookingKeepsRemainingLongIntervalsVisible() {
+        Booking month = index.reserve(booking(BASE, BASE.plusDays(30)), this::save);
+        index.reserve(booking(BASE.plusDays(40), BASE.plusDays(45)), this::save);
+        index.reserve(booking(BASE.plusDays(50), BASE.plusDays(50).plusHours(1)), this::save);
+
+        index.release(month);
+
+        assertThat(index.findOverlapping(ITEM_ID, BASE.plusDays(10), BASE.plusDays(11))).isEmpty();
+        // бронь на 5 дней начинается за 4 дня до запроса: граница поиска не должна сжаться сильнее
+        assertThat(index.findOverlapping(ITEM_ID, BASE.plusDays(44), BASE.plusDays(44).plusHours(1)))
+                .extracting(BookedInterval::getStart)
+                .containsExactly(BASE.plusDays(40));
+        index.reserve(booking(BASE.plusDays(10), BASE.plusDays(11)), this::save);
+    }
+
+    private void runConcurrently(List<Booking> bookings, AtomicInteger rejected) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Booking booking : bookings) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    index.reserve(booking, this::save);
+                } catch (ValidationException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    // сохранение в БД не мгновенное: окно гонки между проверкой и записью должно быть закрыто блокировкой
+    private Booking save(Booking booking) {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        booking.setId(ids.incrementAndGet());
+        return booking;
+    }
+
+    private static Booking booking(LocalDateTime start, LocalDateTime end) {
+        return Booking.builder()
+                .item(Item.builder().id(ITEM_ID).build())
+                .start(start)
+                .end(end)
+                .status(Status.WAITING)
+                .build();
+    }
+}
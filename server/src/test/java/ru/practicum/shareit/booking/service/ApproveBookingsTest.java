@@ -0,0 +1,109 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.index.BookedInterval;
+import ru.practicum.shareit.booking.index.BookingIntervalIndex;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.mapper.CommentMapper;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.mapper.UserMapper;
+import ru.practicum.shareit.util.BatchResultDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// статус меняется одним UPDATE в обход контекста сохранения, поэтому версию и индекс интервалов
+// он должен обновлять сам
+@DataJpaTest
+@Import({BookingServiceImpl.class, BookingMapper.class, ItemMapper.class, CommentMapper.class, UserMapper.class,
+        BookingIntervalIndex.class})
+class ApproveBookingsTest {
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 12, 0);
+    private static final LocalDateTime END = START.plusDays(1);
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingIntervalIndex intervalIndex;
+
+    private User owner;
+    private Item first;
+    private Item second;
+    private Booking approved;
+    private Booking rejected;
+
+    @BeforeEach
+    void setUp() {
+        owner = em.persist(new User(null, "Владелец", "owner@mail.ru"));
+        User booker = em.persist(new User(null, "Арендатор", "booker@mail.ru"));
+        first = em.persist(item("Дрель"));
+        second = em.persist(item("Пила"));
+        approved = em.persist(new Booking(null, START, END, first, booker, Status.WAITING, null));
+        rejected = em.persist(new Booking(null, START, END, second, booker, Status.WAITING, null));
+        em.flush();
+        em.clear();
+        // индекс строится при старте контекста, до того как появились бронирования теста
+        intervalIndex.warmUp();
+    }
+
+    @Test
+    void bulkApprovalBumpsVersionAndRejectsStaleUpdate() {
+        Booking stale = bookingRepository.findById(approved.getId()).orElseThrow();
+        em.detach(stale);
+
+        List<BatchResultDto<BookingDto>> results = bookingService.approveBookings(owner.getId(),
+                List.of(approved.getId()), true);
+        em.clear();
+
+        assertThat(results).extracting(BatchResultDto::getError).containsOnlyNulls();
+        Booking current = bookingRepository.findById(approved.getId()).orElseThrow();
+        assertThat(current.getStatus()).isEqualTo(Status.APPROVED);
+        assertThat(current.getVersion()).isEqualTo(stale.getVersion() + 1);
+
+        // изменение, прочитанное до подтверждения, отклоняется; ErrorHandler отвечает на него 409
+        stale.setEnd(END.plusDays(1));
+        assertThatThrownBy(() -> {
+            bookingRepository.save(stale);
+            em.flush();
+        }).isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    void intervalIndexFollowsBulkStatusChanges() {
+        bookingService.approveBookings(owner.getId(), List.of(approved.getId()), true);
+        bookingService.approveBookings(owner.getId(), List.of(rejected.getId()), false);
+
+        assertThat(intervalIndex.findOverlapping(first.getId(), START, END))
+                .extracting(BookedInterval::getBookingId)
+                .containsExactly(approved.getId());
+        assertThat(intervalIndex.findOverlapping(second.getId(), START, END)).isEmpty();
+    }
+
+    private Item item(String name) {
+        return Item.builder()
+                .name(name)
+                .description(name + " для дома")
+                .available(true)
+                .owner(owner)
+                .build();
+    }
+}
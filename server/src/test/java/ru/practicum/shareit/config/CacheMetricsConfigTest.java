@@ -0,0 +1,73 @@
+package ru.practicum.shareit.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// метрики второго уровня кэша не зависят от статистики Hibernate, которая в проде выключена.
+// Кэш заполняется при фиксации транзакции, поэтому каждый вызов репозитория идёт в своей транзакции
+@DataJpaTest
+@Import(CacheMetricsConfig.class)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CacheMetricsConfigTest {
+    private static final String USER_REGION = User.class.getName();
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private MeterBinder secondLevelCacheMetrics;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        secondLevelCacheMetrics.bindTo(registry);
+        user = userRepository.save(new User(null, "Иван", "ivan@mail.ru"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void hitsAndMissesArePublishedPerRegion() {
+        entityManagerFactory.getCache().evict(User.class, user.getId());
+        double hits = gets("hit");
+        double misses = gets("miss");
+
+        userRepository.findById(user.getId());
+        double missesAfterLoad = gets("miss");
+        userRepository.findById(user.getId());
+
+        assertThat(missesAfterLoad).isGreaterThan(misses);
+        assertThat(gets("miss")).isEqualTo(missesAfterLoad);
+        assertThat(gets("hit") - hits).isEqualTo(1);
+    }
+
+    private double gets(String result) {
+        return registry.get("cache.gets")
+                .tag("cache", USER_REGION)
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+}
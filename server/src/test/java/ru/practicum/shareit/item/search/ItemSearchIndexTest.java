@@ -0,0 +1,75 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ItemSearchIndexTest {
+    private ItemSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        when(itemRepository.findAllAvailableIndexed()).thenReturn(List.of(
+                new IndexedItem(1L, "Дрель", "Ударная дрель", true)
+        ));
+        index = new ItemSearchIndex(itemRepository);
+        index.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void putOutsideTransactionIsVisibleImmediately() {
+        index.put(new IndexedItem(2L, "Дрель аккумуляторная", "", true));
+
+        assertThat(index.search("дрель", 0, 10)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void putIsAppliedOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        index.put(new IndexedItem(2L, "Дрель аккумуляторная", "", true));
+
+        assertThat(index.search("дрель", 0, 10)).containsExactly(1L);
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(index.search("дрель", 0, 10)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void putIsDiscardedOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        index.put(new IndexedItem(2L, "Дрель аккумуляторная", "", true));
+        index.put(new IndexedItem(1L, "Дрель", "Ударная дрель", false));
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(index.search("дрель", 0, 10)).containsExactly(1L);
+        assertThat(index.search("дрель", 1, 10)).isEmpty();
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
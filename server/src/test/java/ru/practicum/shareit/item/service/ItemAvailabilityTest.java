@@ -0,0 +1,150 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.index.BookingIntervalIndex;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.dto.IntervalDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.mapper.CommentMapper;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.request.mapper.ItemRequestMapper;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.mapper.UserMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// календарь занятости вещи и поиск вещей, свободных на заданный период
+@DataJpaTest
+@Import({ItemServiceImpl.class, ItemMapper.class, CommentMapper.class, BookingMapper.class, UserMapper.class,
+        ItemRequestMapper.class, ItemSearchIndex.class, BookingIntervalIndex.class})
+class ItemAvailabilityTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private BookingIntervalIndex intervalIndex;
+
+    private User owner;
+    private User booker;
+    private Item drill;
+
+    @BeforeEach
+    void setUp() {
+        owner = em.persist(new User(null, "Владелец", "owner@mail.ru"));
+        booker = em.persist(new User(null, "Арендатор", "booker@mail.ru"));
+        drill = em.persist(item("Дрель", true));
+    }
+
+    @Test
+    void overlappingAndTouchingBookingsMergeIntoOneBusyInterval() {
+        book(drill, hours(2), hours(5), Status.APPROVED);
+        book(drill, hours(4), hours(6), Status.WAITING);
+        book(drill, hours(6), hours(8), Status.APPROVED);
+        book(drill, hours(10), hours(12), Status.APPROVED);
+
+        ItemAvailabilityDto availability = availability(hours(0), hours(24));
+
+        assertThat(availability.getBusy()).containsExactly(
+                new IntervalDto(hours(2), hours(8)),
+                new IntervalDto(hours(10), hours(12)));
+        assertThat(availability.getFree()).containsExactly(
+                new IntervalDto(hours(0), hours(2)),
+                new IntervalDto(hours(8), hours(10)),
+                new IntervalDto(hours(12), hours(24)));
+    }
+
+    @Test
+    void busyIntervalsAreClippedToRequestedRange() {
+        book(drill, hours(-2), hours(3), Status.APPROVED);
+        book(drill, hours(20), hours(30), Status.APPROVED);
+
+        ItemAvailabilityDto availability = availability(hours(0), hours(24));
+
+        assertThat(availability.getBusy()).containsExactly(
+                new IntervalDto(hours(0), hours(3)),
+                new IntervalDto(hours(20), hours(24)));
+        assertThat(availability.getFree()).containsExactly(new IntervalDto(hours(3), hours(20)));
+    }
+
+    @Test
+    void rejectedAndCanceledBookingsDoNotBlock() {
+        book(drill, hours(2), hours(5), Status.REJECTED);
+        book(drill, hours(6), hours(8), Status.CANCELED);
+
+        ItemAvailabilityDto availability = availability(hours(0), hours(24));
+
+        assertThat(availability.getBusy()).isEmpty();
+        assertThat(availability.getFree()).containsExactly(new IntervalDto(hours(0), hours(24)));
+        assertThat(search(hours(2), hours(8))).extracting(ItemDto::getId).containsExactly(drill.getId());
+    }
+
+    @Test
+    void emptyRangeIsRejected() {
+        assertThatThrownBy(() -> availability(hours(3), hours(3)))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> search(hours(3), hours(3)))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void searchExcludesBookedAndUnavailableItems() {
+        Item screwdriver = em.persist(item("Дрель-шуруповёрт", true));
+        Item broken = em.persist(item("Дрель ударная", false));
+        book(drill, hours(2), hours(5), Status.WAITING);
+        book(screwdriver, hours(5), hours(7), Status.APPROVED);
+
+        // бронь дрели пересекается с периодом, бронь шуруповёрта лишь касается его конца
+        assertThat(search(hours(4), hours(5))).extracting(ItemDto::getId).containsExactly(screwdriver.getId());
+        assertThat(search(hours(5), hours(6))).extracting(ItemDto::getId).containsExactly(drill.getId());
+        assertThat(search(hours(8), hours(9))).extracting(ItemDto::getId)
+                .containsExactly(drill.getId(), screwdriver.getId())
+                .doesNotContain(broken.getId());
+    }
+
+    private ItemAvailabilityDto availability(LocalDateTime from, LocalDateTime to) {
+        em.flush();
+        // индекс строится при старте контекста, до того как появились бронирования теста
+        intervalIndex.warmUp();
+        return itemService.getAvailability(booker.getId(), drill.getId(), from, to);
+    }
+
+    private List<ItemDto> search(LocalDateTime start, LocalDateTime end) {
+        em.flush();
+        return itemService.searchAvailableItems(booker.getId(), "дрель", start, end, 0, 10);
+    }
+
+    private void book(Item item, LocalDateTime start, LocalDateTime end, Status status) {
+        em.persist(new Booking(null, start, end, item, booker, status, null));
+    }
+
+    private Item item(String name, boolean available) {
+        return Item.builder()
+                .name(name)
+                .description(name + " для дома")
+                .available(available)
+                .owner(owner)
+                .build();
+    }
+
+    private static LocalDateTime hours(int hours) {
+        return DAY.plusHours(hours);
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.shareit.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityTagTest {
+    @Test
+    void tagIsBuiltFromVersions() {
+        assertThat(EntityTag.of(3L, 2, 7L)).isEqualTo("W/\"3-2-7\"");
+    }
+
+    @Test
+    void matchesIsWeakComparison() {
+        String etag = EntityTag.of(3L, 2);
+
+        assertThat(EntityTag.matches("W/\"3-2\"", etag)).isTrue();
+        assertThat(EntityTag.matches("\"3-2\"", etag)).isTrue();
+        assertThat(EntityTag.matches("\"1-1\", W/\"3-2\"", etag)).isTrue();
+        assertThat(EntityTag.matches("W/\"3-3\"", etag)).isFalse();
+        assertThat(EntityTag.matches(null, etag)).isFalse();
+    }
+
+    // совпадение по "*" оставлено WebRequest.checkNotModified, чтобы сервис не пропустил загрузку зря
+    @Test
+    void wildcardDoesNotSkipLoading() {
+        assertThat(EntityTag.matches("*", EntityTag.of(1L))).isFalse();
+    }
+}